@@ -0,0 +1,99 @@
+package com.alok.benchmarks;
+
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.results.format.ResultFormatFactory;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.BenchmarkList;
+import org.openjdk.jmh.runner.BenchmarkListEntry;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.format.OutputFormatFactory;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.VerboseMode;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Runs the benchmarks once per thread count and writes one JMH JSON result file per run,
+ * {@code <directory>/<label>-t<threads>.json}, so that the results of two versions can be compared.
+ * <p>
+ * Usage: {@code BenchmarkSuite <directory> <label> <threads,...> [benchmark regex...]}, for example
+ * {@code BenchmarkSuite results 1.0 1,4 Catalog}. Catalog sizes are set with the {@code size} parameter of the
+ * benchmarks; pass {@code -Dsize=1000,1000000} to override them. The override only applies to the benchmarks
+ * that have a {@code size} parameter, the others run with their own parameters in a separate JMH run whose
+ * results go to the same file.
+ */
+public class BenchmarkSuite {
+
+    private static final String SIZE = "size";
+
+    /**
+     * The entry point of application.
+     *
+     * @param args the input arguments
+     * @throws IOException     the io exception
+     * @throws RunnerException the runner exception
+     */
+    public static void main(String[] args) throws IOException, RunnerException {
+        if (args.length < 3) {
+            System.err.println("Usage: BenchmarkSuite <directory> <label> <threads,...> [benchmark regex...]");
+            System.exit(2);
+        }
+        Path directory = Files.createDirectories(Paths.get(args[0]));
+        String label = args[1];
+        List<String> includes = args.length == 3
+                ? Collections.singletonList(BenchmarkSuite.class.getPackage().getName() + ".*Benchmark")
+                : Arrays.asList(args).subList(3, args.length);
+        String sizes = System.getProperty(SIZE);
+        List<String> sized = new ArrayList<>();
+        List<String> unsized = new ArrayList<>();
+        if (sizes != null) {
+            for (BenchmarkListEntry entry : BenchmarkList.defaultList().find(
+                    OutputFormatFactory.createFormatInstance(System.out, VerboseMode.SILENT),
+                    includes, Collections.emptyList())) {
+                boolean hasSize = entry.getParams().hasValue() && entry.getParams().get().containsKey(SIZE);
+                (hasSize ? sized : unsized).add("^" + Pattern.quote(entry.getUsername()) + "$");
+            }
+        }
+        for (String threads : args[2].split(",")) {
+            int count = Integer.parseInt(threads.trim());
+            List<RunResult> results = new ArrayList<>();
+            if (sizes == null) {
+                results.addAll(run(count, includes, null));
+            } else {
+                if (!sized.isEmpty()) {
+                    results.addAll(run(count, sized, sizes.split(",")));
+                }
+                if (!unsized.isEmpty()) {
+                    results.addAll(run(count, unsized, null));
+                }
+            }
+            try (PrintStream out = new PrintStream(
+                    Files.newOutputStream(directory.resolve(label + "-t" + threads.trim() + ".json")), false, "UTF-8")) {
+                ResultFormatFactory.getInstance(ResultFormatType.JSON, out).writeOut(results);
+            }
+        }
+    }
+
+    private static Collection<RunResult> run(int threads, List<String> includes, String[] sizes) throws RunnerException {
+        ChainedOptionsBuilder options = new OptionsBuilder().threads(threads);
+        for (String include : includes) {
+            options.include(include);
+        }
+        if (sizes != null) {
+            options.param(SIZE, sizes);
+        }
+        return new Runner(options.build()).run();
+    }
+}
@@ -0,0 +1,162 @@
+package com.alok.benchmarks;
+
+import com.alok.data.Product;
+import com.alok.data.ProductManager;
+import com.alok.data.ProductManagerException;
+import com.alok.data.ProductQuery;
+import com.alok.data.Rating;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+
+/**
+ * Catalog operations against catalogs of growing size: create, find, the listing queries of {@code Shop}
+ * and the discount totals.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CatalogBenchmark {
+
+    private static final Comparator<Product> BY_RATING = Comparator.comparing(Product::getRating).reversed();
+    private static final Comparator<Product> BY_PRICE = Comparator.comparing(Product::getPrice).reversed();
+    private static final Predicate<Product> CHEAP = product -> product.getPrice().floatValue() < 2;
+    private static final ProductQuery CHEAP_QUERY = ProductQuery.create()
+            .maxPrice(BigDecimal.valueOf(2)).sortByRating(true).sortByPrice(true);
+    private static final ProductQuery TOP_TEN_QUERY = ProductQuery.create()
+            .minRating(Rating.FOUR_STAR).sortByRating(true).sortByPrice(false).limit(10);
+
+    @Param({"1000", "100000"})
+    private int size;
+
+    private ProductManager pm;
+    private final Writer out = Writer.nullWriter();
+
+    /**
+     * Builds the catalog.
+     */
+    @Setup(Level.Trial)
+    public void setUp() {
+        pm = Catalogs.create("en-US", size, 5);
+    }
+
+    /**
+     * Find product product.
+     *
+     * @return the product
+     * @throws ProductManagerException the product manager exception
+     */
+    @Benchmark
+    public Product findProduct() throws ProductManagerException {
+        return pm.findProduct(ThreadLocalRandom.current().nextInt(size));
+    }
+
+    /**
+     * Lists the cheap products by rating and price with a filter and a comparator.
+     *
+     * @return the number of products written
+     * @throws IOException the io exception
+     */
+    @Benchmark
+    public int printCheapProducts() throws IOException {
+        return pm.writeProducts(CHEAP, BY_RATING.thenComparing(BY_PRICE), 0, Integer.MAX_VALUE, out);
+    }
+
+    /**
+     * Lists the first ten products of a filter and comparator listing.
+     *
+     * @return the number of products written
+     * @throws IOException the io exception
+     */
+    @Benchmark
+    public int printTopTenProducts() throws IOException {
+        return pm.writeProducts(product -> product.getRating().ordinal() >= Rating.FOUR_STAR.ordinal(),
+                BY_RATING.thenComparing(Comparator.comparing(Product::getPrice)), 0, 10, out);
+    }
+
+    /**
+     * Lists the cheap products by rating and price from the indexes.
+     *
+     * @return the number of products written
+     * @throws IOException the io exception
+     */
+    @Benchmark
+    public int queryCheapProducts() throws IOException {
+        return pm.writeProducts(CHEAP_QUERY, out);
+    }
+
+    /**
+     * Lists the first ten products of an index query.
+     *
+     * @return the number of products written
+     * @throws IOException the io exception
+     */
+    @Benchmark
+    public int queryTopTenProducts() throws IOException {
+        return pm.writeProducts(TOP_TEN_QUERY, out);
+    }
+
+    /**
+     * Gets discount.
+     *
+     * @return the discount
+     */
+    @Benchmark
+    public Map<String, String> getDiscount() {
+        return pm.getDiscount();
+    }
+
+    /**
+     * Creates products in a catalog that starts each iteration with {@code size} products.
+     */
+    @State(Scope.Benchmark)
+    public static class Growing {
+        private ProductManager pm;
+        private final AtomicInteger nextId = new AtomicInteger();
+
+        /**
+         * Builds the catalog.
+         *
+         * @param catalog the benchmark parameters
+         */
+        @Setup(Level.Iteration)
+        public void setUp(CatalogBenchmark catalog) {
+            pm = Catalogs.create("en-US", catalog.size, 0);
+            nextId.set(catalog.size);
+        }
+    }
+
+    /**
+     * Create product product.
+     *
+     * @param growing the growing catalog
+     * @return the product
+     */
+    @Benchmark
+    public Product createProduct(Growing growing) {
+        int id = growing.nextId.getAndIncrement();
+        return growing.pm.createProduct(id, "Drink " + id, BigDecimal.valueOf(id % 500, 2), Rating.NOT_RATED);
+    }
+}
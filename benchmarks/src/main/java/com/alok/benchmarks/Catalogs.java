@@ -0,0 +1,55 @@
+package com.alok.benchmarks;
+
+import com.alok.data.ProductManager;
+import com.alok.data.Rating;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Random;
+
+/**
+ * Builds the catalogs the benchmarks run against, the same for every run.
+ */
+final class Catalogs {
+
+    private static final Rating[] RATINGS = Rating.values();
+
+    private Catalogs() {
+    }
+
+    /**
+     * Creates a concurrent manager holding {@code size} products, half drinks and half food, with a few reviews each.
+     *
+     * @param locale  the locale tag
+     * @param size    the number of products
+     * @param reviews the number of reviews per product
+     * @return the manager
+     */
+    static ProductManager create(String locale, int size, int reviews) {
+        ProductManager pm = new ProductManager(locale, true);
+        Random random = new Random(size);
+        LocalDate today = LocalDate.now();
+        for (int id = 0; id < size; id++) {
+            BigDecimal price = BigDecimal.valueOf(random.nextInt(500), 2);
+            if (id % 2 == 0) {
+                pm.createProduct(id, "Drink " + id, price, Rating.NOT_RATED);
+            } else {
+                pm.createProduct(id, "Food " + id, price, Rating.NOT_RATED, today.plusDays(id % 7));
+            }
+            for (int r = 0; r < reviews; r++) {
+                pm.reviewProduct(id, rating(random), "Review " + r + " of product " + id);
+            }
+        }
+        return pm;
+    }
+
+    /**
+     * Picks a review rating.
+     *
+     * @param random the random
+     * @return the rating, never {@link Rating#NOT_RATED}
+     */
+    static Rating rating(Random random) {
+        return RATINGS[1 + random.nextInt(RATINGS.length - 1)];
+    }
+}
@@ -0,0 +1,140 @@
+package com.alok.benchmarks;
+
+import com.alok.data.ProductManager;
+import com.alok.data.ProductManagerException;
+import com.alok.data.Rating;
+import com.alok.data.RatingStats;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Stress test of a concurrent {@link ProductManager}: N threads create the same products, each in its own
+ * order so that every id is raced by all of them, and review random products at the same time. The result is
+ * then compared with a non-concurrent manager fed the same products and reviews from one thread: the total
+ * review count, and the review count, rating histogram and rating of every product must be equal, so that
+ * no review and no product is lost or applied twice. Exits with status 1 on a mismatch.
+ * <p>
+ * Usage: {@code ConcurrencyStressTest [threads] [products] [reviewsPerThread] [rounds]}
+ */
+public class ConcurrencyStressTest {
+
+    /**
+     * The entry point of application.
+     *
+     * @param args the input arguments
+     * @throws Exception the exception
+     */
+    public static void main(String[] args) throws Exception {
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : 8;
+        int products = args.length > 1 ? Integer.parseInt(args[1]) : 1_000;
+        int reviews = args.length > 2 ? Integer.parseInt(args[2]) : 50_000;
+        int rounds = args.length > 3 ? Integer.parseInt(args[3]) : 5;
+        for (int round = 0; round < rounds; round++) {
+            List<String> failures = run(threads, products, reviews, round);
+            if (!failures.isEmpty()) {
+                failures.stream().limit(20).forEach(System.err::println);
+                System.err.printf("Round %d failed: %d mismatches%n", round, failures.size());
+                System.exit(1);
+            }
+            System.out.printf("Round %d: %d threads, %d products, %d reviews, no review lost%n",
+                    round, threads, products, (long) threads * reviews);
+        }
+    }
+
+    private static List<String> run(int threads, int products, int reviews, int round) throws Exception {
+        ProductManager concurrent = new ProductManager("en-US", true);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicReference<Throwable> error = new AtomicReference<>();
+        List<Thread> workers = new ArrayList<>(threads);
+        for (int t = 0; t < threads; t++) {
+            long seed = seed(round, t);
+            Thread worker = new Thread(() -> {
+                try {
+                    start.await();
+                    Random order = new Random(seed);
+                    int first = order.nextInt(products);
+                    for (int i = 0; i < products; i++) {
+                        create(concurrent, (first + i) % products);
+                    }
+                    feed(concurrent, new Random(~seed), products, reviews);
+                } catch (Throwable e) {
+                    error.compareAndSet(null, e);
+                }
+            }, "stress-" + t);
+            worker.start();
+            workers.add(worker);
+        }
+        start.countDown();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        if (error.get() != null) {
+            throw new IllegalStateException("Worker failed", error.get());
+        }
+
+        ProductManager serial = new ProductManager("en-US", false);
+        for (int id = 0; id < products; id++) {
+            create(serial, id);
+        }
+        for (int t = 0; t < threads; t++) {
+            feed(serial, new Random(~seed(round, t)), products, reviews);
+        }
+        return compare(serial, concurrent, products);
+    }
+
+    private static long seed(int round, int thread) {
+        return round * 1_000_003L + thread;
+    }
+
+    private static void create(ProductManager pm, int id) {
+        BigDecimal price = BigDecimal.valueOf(100 + id % 900, 2);
+        if (id % 2 == 0) {
+            pm.createProduct(id, "Drink " + id, price, Rating.NOT_RATED);
+        } else {
+            pm.createProduct(id, "Food " + id, price, Rating.NOT_RATED, LocalDate.now().plusDays(id % 7));
+        }
+    }
+
+    /**
+     * Reviews products at random. Reviews of products the thread has not created yet are not a concern:
+     * every thread creates all products before reviewing.
+     */
+    private static void feed(ProductManager pm, Random random, int products, int reviews) {
+        for (int i = 0; i < reviews; i++) {
+            pm.reviewProduct(random.nextInt(products), Catalogs.rating(random), "Review " + i);
+        }
+    }
+
+    private static List<String> compare(ProductManager expected, ProductManager actual, int products)
+            throws ProductManagerException {
+        List<String> failures = new ArrayList<>();
+        long expectedReviews = expected.getMetrics().getReviewCount();
+        long actualReviews = actual.getMetrics().getReviewCount();
+        if (expectedReviews != actualReviews) {
+            failures.add("Review count " + actualReviews + ", expected " + expectedReviews);
+        }
+        if (expected.getMetrics().getProductCount() != actual.getMetrics().getProductCount()) {
+            failures.add("Product count " + actual.getMetrics().getProductCount()
+                    + ", expected " + expected.getMetrics().getProductCount());
+        }
+        for (int id = 0; id < products; id++) {
+            RatingStats want = expected.getRatingStats(id);
+            RatingStats got = actual.getRatingStats(id);
+            if (want.getCount() != got.getCount() || !want.getHistogram().equals(got.getHistogram())) {
+                failures.add("Product " + id + " reviews " + got + ", expected " + want);
+            }
+            Rating wantRating = expected.findProduct(id).getRating();
+            Rating gotRating = actual.findProduct(id).getRating();
+            if (wantRating != gotRating) {
+                failures.add("Product " + id + " rated " + gotRating + ", expected " + wantRating);
+            }
+        }
+        return failures;
+    }
+}
@@ -0,0 +1,74 @@
+package com.alok.benchmarks;
+
+import com.alok.data.ProductManager;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDate;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parsing of product and review data lines.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ParseBenchmark {
+
+    private static final int LINES = 1024;
+
+    private final String[] productLines = new String[LINES];
+    private final String[] reviewLines = new String[LINES];
+    private ProductManager pm;
+
+    /**
+     * Builds the lines.
+     */
+    @Setup(Level.Trial)
+    public void setUp() {
+        LocalDate today = LocalDate.now();
+        for (int i = 0; i < LINES; i++) {
+            productLines[i] = (i % 2 == 0 ? "D, " + i + ", Drink " : "F, " + i + ", Food ") + i + ", "
+                    + (i % 500) / 100.0 + ", " + i % 6 + ", " + today.plusDays(i % 7);
+            reviewLines[i] = i + ", " + (1 + i % 5) + ", Review of product " + i;
+        }
+    }
+
+    /**
+     * Builds the catalog, afresh for every iteration so that the reviews added by {@link #parseReview()} do not
+     * pile up over the trial.
+     */
+    @Setup(Level.Iteration)
+    public void setUpCatalog() {
+        pm = Catalogs.create("en-US", LINES, 0);
+    }
+
+    /**
+     * Parse product, of a product already in the catalog.
+     */
+    @Benchmark
+    public void parseProduct() {
+        pm.parseProduct(productLines[ThreadLocalRandom.current().nextInt(LINES)]);
+    }
+
+    /**
+     * Parse review.
+     */
+    @Benchmark
+    public void parseReview() {
+        pm.parseReview(reviewLines[ThreadLocalRandom.current().nextInt(LINES)]);
+    }
+}
@@ -0,0 +1,68 @@
+package com.alok.benchmarks;
+
+import com.alok.data.Product;
+import com.alok.data.ProductManager;
+import com.alok.data.ProductManagerException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rendering of product reports, product line and reviews, in every supported locale.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RenderBenchmark {
+
+    private static final int PRODUCTS = 1000;
+
+    @Param({"en-US", "fr-FR", "ru-RU", "zh-TW", "hi-IN"})
+    private String locale;
+
+    private ProductManager pm;
+    private Product[] products;
+    private final Writer out = Writer.nullWriter();
+
+    /**
+     * Builds the catalog.
+     *
+     * @throws ProductManagerException the product manager exception
+     */
+    @Setup(Level.Trial)
+    public void setUp() throws ProductManagerException {
+        pm = Catalogs.create(locale, PRODUCTS, 10);
+        products = new Product[PRODUCTS];
+        for (int id = 0; id < PRODUCTS; id++) {
+            products[id] = pm.findProduct(id);
+        }
+    }
+
+    /**
+     * Renders the report of a product with ten reviews.
+     *
+     * @return the number of reviews written
+     * @throws IOException the io exception
+     */
+    @Benchmark
+    public int writeProductReport() throws IOException {
+        return pm.writeProductReport(products[ThreadLocalRandom.current().nextInt(PRODUCTS)], 0, Integer.MAX_VALUE, out);
+    }
+}
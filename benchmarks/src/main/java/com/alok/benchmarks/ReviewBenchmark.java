@@ -0,0 +1,65 @@
+package com.alok.benchmarks;
+
+import com.alok.data.Product;
+import com.alok.data.ProductManager;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reviews of products that already have many reviews, which used to cost time proportional to the review count.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ReviewBenchmark {
+
+    private static final int PRODUCTS = 10;
+
+    @Param({"10", "1000", "100000"})
+    private int reviews;
+
+    private ProductManager pm;
+
+    /**
+     * Builds {@value #PRODUCTS} products with {@code reviews} reviews each, anew for every iteration so that
+     * the review count does not drift.
+     */
+    @Setup(Level.Iteration)
+    public void setUp() {
+        pm = Catalogs.create("en-US", PRODUCTS, 0);
+        Random random = new Random(reviews);
+        for (int id = 0; id < PRODUCTS; id++) {
+            for (int r = 0; r < reviews; r++) {
+                pm.reviewProduct(id, Catalogs.rating(random), "Review " + r);
+            }
+        }
+    }
+
+    /**
+     * Review product product.
+     *
+     * @return the product
+     */
+    @Benchmark
+    public Product reviewProduct() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        return pm.reviewProduct(random.nextInt(PRODUCTS), Catalogs.rating(random), "Benchmark review");
+    }
+}
@@ -0,0 +1,69 @@
+package com.alok.benchmarks;
+
+import com.alok.data.ProductManager;
+import com.alok.data.ProductManagerException;
+import com.alok.data.Rating;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cold start costs, measured once per fresh JVM: creating the first manager, which loads the locale
+ * formatters, and serving the first report in the default and in another locale.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 0)
+@Measurement(iterations = 1)
+@Fork(20)
+public class StartupBenchmark {
+
+    /**
+     * Creates the first product manager of the JVM.
+     *
+     * @return the manager
+     */
+    @Benchmark
+    public ProductManager coldStart() {
+        return new ProductManager("en-US");
+    }
+
+    /**
+     * Serves the first report of the JVM in the default locale.
+     *
+     * @return the number of reviews written
+     * @throws ProductManagerException the product manager exception
+     * @throws IOException             the io exception
+     */
+    @Benchmark
+    public int firstRequest() throws ProductManagerException, IOException {
+        return firstReport("en-US");
+    }
+
+    /**
+     * Serves the first report of the JVM in a locale other than the manager one.
+     *
+     * @return the number of reviews written
+     * @throws ProductManagerException the product manager exception
+     * @throws IOException             the io exception
+     */
+    @Benchmark
+    public int firstRequestOtherLocale() throws ProductManagerException, IOException {
+        return firstReport("fr-FR");
+    }
+
+    private static int firstReport(String langTag) throws ProductManagerException, IOException {
+        ProductManager pm = new ProductManager("en-US");
+        pm.createProduct(101, "Tea", BigDecimal.valueOf(1.99), Rating.NOT_RATED);
+        return pm.writeProductReport(pm.findProduct(101), langTag, 0, Integer.MAX_VALUE, Writer.nullWriter());
+    }
+}
@@ -0,0 +1,461 @@
+package com.alok.app;
+
+import com.alok.data.BatchResult;
+import com.alok.data.Product;
+import com.alok.data.ProductManager;
+import com.alok.data.ProductManagerException;
+import com.alok.data.ProductQuery;
+import com.alok.data.Rating;
+import com.alok.data.ReviewSpec;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Embedded HTTP query service over a {@link ProductManager}, on the JDK {@link HttpServer}. Every request
+ * runs on its own virtual thread when the runtime has them (Java 21 and later), otherwise on a fixed pool of
+ * daemon threads. Responses are JSON with a {@code Content-Length}, never chunked, so clients keep their
+ * connections alive. Request bodies larger than 64 KiB are refused with status 413.
+ * <ul>
+ * <li>{@code GET /products/{id}} finds a product</li>
+ * <li>{@code GET /products/{id}/report?offset=0&limit=20} renders the report of a product and a page of its reviews</li>
+ * <li>{@code GET /products?minPrice=&maxPrice=&minRating=&maxRating=&sort=-rating,price&limit=100} lists products,
+ * ratings given as a number of stars and a {@code -} in front of a sort key sorting in descending order</li>
+ * <li>{@code GET /discounts} sums the discounts per rating</li>
+ * <li>{@code POST /products/{id}/reviews} with a form or query {@code rating} and {@code comments} reviews a product</li>
+ * </ul>
+ * Text is rendered in the locale of the {@code lang} parameter, else of the first supported tag of the
+ * {@code Accept-Language} header, else of the default lang tag of the server.
+ * <p>
+ * Usage: {@code CatalogServer [port] [products] [langTag]}
+ */
+public class CatalogServer implements Closeable {
+
+    private static final Logger logger = Logger.getLogger(CatalogServer.class.getName());
+    private static final int DEFAULT_LIMIT = 100;
+    private static final int MAX_LIMIT = 1_000;
+    private static final int BACKLOG = 1_024;
+    private static final int MAX_BODY = 64 * 1024;
+    private static final String NODELAY = "sun.net.httpserver.nodelay";
+
+    private final ProductManager manager;
+    private final String defaultLang;
+    private final Set<String> supported;
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final boolean virtual;
+
+    /**
+     * Instantiates a new Catalog server, not started yet.
+     * <p>
+     * The JDK server writes the headers and the body of a response separately, so with Nagle's algorithm the
+     * body waits for the delayed acknowledgement of the headers, about 40 ms on every kept alive connection.
+     * Applications embedding the server should set the system property {@code sun.net.httpserver.nodelay} to
+     * {@code true} before the first server of the JVM is created, as {@link #main(String[])} does.
+     *
+     * @param manager     the manager
+     * @param address     the address to bind, port 0 for any free port
+     * @param defaultLang the lang tag of requests that do not choose a locale
+     * @throws IOException the io exception
+     */
+    public CatalogServer(ProductManager manager, InetSocketAddress address, String defaultLang) throws IOException {
+        this.manager = manager;
+        this.defaultLang = defaultLang;
+        this.supported = manager.supportedLocals();
+        ExecutorService threads = newVirtualThreadExecutor();
+        this.virtual = threads != null;
+        this.executor = virtual ? threads : Executors.newFixedThreadPool(
+                Math.max(8, Runtime.getRuntime().availableProcessors() * 4), task -> {
+                    Thread thread = new Thread(task, "catalog-http");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        this.server = HttpServer.create(address, BACKLOG);
+        server.setExecutor(executor);
+        server.createContext("/products", this::products);
+        server.createContext("/discounts", this::discounts);
+    }
+
+    /**
+     * Starts accepting requests.
+     */
+    public void start() {
+        server.start();
+    }
+
+    /**
+     * Gets port.
+     *
+     * @return the bound port
+     */
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * Is virtual boolean.
+     *
+     * @return whether requests run on virtual threads
+     */
+    public boolean isVirtual() {
+        return virtual;
+    }
+
+    /**
+     * Stops accepting requests and closes the connections without waiting for exchanges in progress.
+     */
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdown();
+    }
+
+    /**
+     * The entry point of application.
+     *
+     * @param args the input arguments
+     * @throws IOException the io exception
+     */
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 8080;
+        int size = args.length > 1 ? Integer.parseInt(args[1]) : 10_000;
+        String langTag = args.length > 2 ? args[2] : "en-US";
+        if (System.getProperty(NODELAY) == null) {
+            System.setProperty(NODELAY, "true");
+        }
+        ProductManager pm = new ProductManager(langTag, true);
+        populate(pm, size);
+        CatalogServer server = new CatalogServer(pm, new InetSocketAddress(port), langTag);
+        server.start();
+        System.out.printf("Serving %d products on port %d, %s threads%n", size, server.getPort(),
+                server.isVirtual() ? "virtual" : "pooled");
+    }
+
+    private static void populate(ProductManager pm, int size) {
+        Random random = new Random(size);
+        Rating[] ratings = Rating.values();
+        for (int id = 0; id < size; id++) {
+            BigDecimal price = BigDecimal.valueOf(random.nextInt(10_000), 2);
+            if (id % 2 == 0) {
+                pm.createProduct(id, "Drink " + id, price, Rating.NOT_RATED);
+            } else {
+                pm.createProduct(id, "Food " + id, price, Rating.NOT_RATED, LocalDate.now().plusDays(id % 30));
+            }
+        }
+        for (int i = 0; i < size * 5; i++) {
+            pm.reviewProduct(random.nextInt(size), ratings[random.nextInt(ratings.length)], "Review number " + i);
+        }
+    }
+
+    private static ExecutorService newVirtualThreadExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+
+    private void products(HttpExchange exchange) throws IOException {
+        try {
+            Map<String, String> params = parameters(exchange);
+            String lang = locale(exchange, params);
+            String[] path = exchange.getRequestURI().getPath().substring(1).split("/");
+            String method = exchange.getRequestMethod();
+            if (!path[0].equals("products")) {
+                error(exchange, 404, "No resource at " + exchange.getRequestURI().getPath());
+            } else if (path.length == 1) {
+                requireMethod(method, "GET");
+                send(exchange, 200, list(params, lang));
+            } else if (path.length == 2) {
+                requireMethod(method, "GET");
+                send(exchange, 200, product(manager.findProduct(id(path[1])), lang).toBytes());
+            } else if (path.length == 3 && path[2].equals("report")) {
+                requireMethod(method, "GET");
+                send(exchange, 200, report(manager.findProduct(id(path[1])), params, lang));
+            } else if (path.length == 3 && path[2].equals("reviews")) {
+                requireMethod(method, "POST");
+                review(exchange, id(path[1]), params, lang);
+            } else {
+                error(exchange, 404, "No resource at " + exchange.getRequestURI().getPath());
+            }
+        } catch (ProductManagerException e) {
+            error(exchange, 404, e.getMessage());
+        } catch (MethodNotAllowed e) {
+            exchange.getResponseHeaders().set("Allow", e.getMessage());
+            error(exchange, 405, "Use " + e.getMessage());
+        } catch (PayloadTooLarge e) {
+            error(exchange, 413, e.getMessage());
+        } catch (IllegalArgumentException e) {
+            error(exchange, 400, e.getMessage());
+        } catch (RuntimeException e) {
+            logger.log(Level.SEVERE, "Failed to serve " + exchange.getRequestURI(), e);
+            error(exchange, 500, "Internal error");
+        }
+    }
+
+    private void discounts(HttpExchange exchange) throws IOException {
+        try {
+            Map<String, String> params = parameters(exchange);
+            if (!exchange.getRequestURI().getPath().equals("/discounts")) {
+                error(exchange, 404, "No resource at " + exchange.getRequestURI().getPath());
+                return;
+            }
+            requireMethod(exchange.getRequestMethod(), "GET");
+            JsonWriter json = new JsonWriter(256).beginObject();
+            new TreeMap<>(manager.getDiscount(locale(exchange, params)))
+                    .forEach((stars, total) -> json.name(stars).value(total));
+            send(exchange, 200, json.endObject().toBytes());
+        } catch (MethodNotAllowed e) {
+            exchange.getResponseHeaders().set("Allow", e.getMessage());
+            error(exchange, 405, "Use " + e.getMessage());
+        } catch (PayloadTooLarge e) {
+            error(exchange, 413, e.getMessage());
+        } catch (RuntimeException e) {
+            logger.log(Level.SEVERE, "Failed to serve " + exchange.getRequestURI(), e);
+            error(exchange, 500, "Internal error");
+        }
+    }
+
+    private byte[] list(Map<String, String> params, String lang) {
+        ProductQuery query = ProductQuery.create()
+                .limit(Math.min(intParameter(params, "limit", DEFAULT_LIMIT), MAX_LIMIT));
+        String value;
+        if ((value = params.get("minPrice")) != null) {
+            query.minPrice(new BigDecimal(value));
+        }
+        if ((value = params.get("maxPrice")) != null) {
+            query.maxPrice(new BigDecimal(value));
+        }
+        if ((value = params.get("minRating")) != null) {
+            query.minRating(rating(value));
+        }
+        if ((value = params.get("maxRating")) != null) {
+            query.maxRating(rating(value));
+        }
+        if ((value = params.get("sort")) != null) {
+            for (String key : value.split(",")) {
+                boolean descending = key.startsWith("-");
+                switch (descending ? key.substring(1) : key) {
+                    case "rating":
+                        query.sortByRating(descending);
+                        break;
+                    case "price":
+                        query.sortByPrice(descending);
+                        break;
+                    default:
+                        throw new IllegalArgumentException("Unknown sort key: " + key);
+                }
+            }
+        }
+        List<Product> products = manager.findProducts(query);
+        JsonWriter json = new JsonWriter(64 + products.size() * 192).beginArray();
+        for (Product product : products) {
+            write(json, product, lang);
+        }
+        return json.endArray().toBytes();
+    }
+
+    private byte[] report(Product product, Map<String, String> params, String lang) {
+        int offset = intParameter(params, "offset", 0);
+        int limit = Math.min(intParameter(params, "limit", DEFAULT_LIMIT), MAX_LIMIT);
+        StringBuilder text = new StringBuilder(256);
+        int reviews;
+        try {
+            reviews = manager.writeProductReport(product, lang, offset, limit, text);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return new JsonWriter(text.length() + 64).beginObject()
+                .name("id").value(product.getId())
+                .name("reviews").value(reviews)
+                .name("text").value(text.toString())
+                .endObject().toBytes();
+    }
+
+    private void review(HttpExchange exchange, int id, Map<String, String> params, String lang) throws IOException {
+        String value = params.get("rating");
+        if (value == null) {
+            throw new IllegalArgumentException("Missing rating");
+        }
+        ReviewSpec spec = new ReviewSpec(id, rating(value), params.getOrDefault("comments", ""));
+        BatchResult result = manager.reviewProducts(Collections.singletonList(spec)).get(0);
+        switch (result.getStatus()) {
+            case REVIEWED:
+                send(exchange, 200, product(result.getProduct(), lang).toBytes());
+                break;
+            case NOT_FOUND:
+                error(exchange, 404, "No product with id " + id);
+                break;
+            default:
+                error(exchange, 400, result.getMessage());
+        }
+    }
+
+    private JsonWriter product(Product product, String lang) {
+        JsonWriter json = new JsonWriter(192);
+        write(json, product, lang);
+        return json;
+    }
+
+    private void write(JsonWriter json, Product product, String lang) {
+        json.beginObject()
+                .name("id").value(product.getId())
+                .name("name").value(product.getName())
+                .name("price").value(product.getPrice())
+                .name("discount").value(product.getDiscount())
+                .name("rating").value(product.getRating().ordinal())
+                .name("bestBefore").value(product.getBestBefore().toString())
+                .name("text").value(manager.formatProduct(product, lang))
+                .endObject();
+    }
+
+    private static void send(HttpExchange exchange, int status, byte[] body) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, body.length);
+        exchange.getResponseBody().write(body);
+        exchange.close();
+    }
+
+    private static void error(HttpExchange exchange, int status, String message) throws IOException {
+        send(exchange, status, new JsonWriter(64).beginObject().name("error").value(message).endObject().toBytes());
+    }
+
+    private static void requireMethod(String method, String allowed) {
+        if (!method.equals(allowed)) {
+            throw new MethodNotAllowed(allowed);
+        }
+    }
+
+    /**
+     * Gets the lang tag of a request.
+     *
+     * @param exchange the exchange
+     * @param params   the request parameters
+     * @return the {@code lang} parameter, else the first supported tag of the {@code Accept-Language} header,
+     * else the default lang tag
+     */
+    private String locale(HttpExchange exchange, Map<String, String> params) {
+        String lang = params.get("lang");
+        if (lang != null) {
+            return lang;
+        }
+        String accepted = exchange.getRequestHeaders().getFirst("Accept-Language");
+        if (accepted != null) {
+            for (String range : accepted.split(",")) {
+                int weight = range.indexOf(';');
+                String tag = (weight < 0 ? range : range.substring(0, weight)).trim();
+                if (supported.contains(tag)) {
+                    return tag;
+                }
+            }
+        }
+        return defaultLang;
+    }
+
+    /**
+     * Reads the query parameters and, for a form post, the form fields, which take precedence. A request body
+     * within the limit is read to the end, so that the connection can serve the next request.
+     *
+     * @param exchange the exchange
+     * @return the parameters
+     * @throws IOException      the io exception
+     * @throws PayloadTooLarge when the body is larger than 64 KiB
+     */
+    private static Map<String, String> parameters(HttpExchange exchange) throws IOException {
+        Map<String, String> params = new HashMap<>();
+        decode(exchange.getRequestURI().getRawQuery(), params);
+        byte[] body;
+        try (InputStream in = exchange.getRequestBody()) {
+            body = in.readNBytes(MAX_BODY + 1);
+        }
+        if (body.length > MAX_BODY) {
+            throw new PayloadTooLarge();
+        }
+        String type = exchange.getRequestHeaders().getFirst("Content-Type");
+        if (body.length > 0 && type != null && type.startsWith("application/x-www-form-urlencoded")) {
+            decode(new String(body, StandardCharsets.US_ASCII), params);
+        }
+        return params;
+    }
+
+    private static void decode(String encoded, Map<String, String> params) {
+        if (encoded == null || encoded.isEmpty()) {
+            return;
+        }
+        for (String pair : encoded.split("&")) {
+            int equals = pair.indexOf('=');
+            String name = equals < 0 ? pair : pair.substring(0, equals);
+            String value = equals < 0 ? "" : pair.substring(equals + 1);
+            params.put(URLDecoder.decode(name, StandardCharsets.UTF_8), URLDecoder.decode(value, StandardCharsets.UTF_8));
+        }
+    }
+
+    private static int id(String text) {
+        try {
+            return Integer.parseInt(text);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid product id: " + text);
+        }
+    }
+
+    private static int intParameter(Map<String, String> params, String name, int defaultValue) {
+        String value = params.get(name);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            int number = Integer.parseInt(value);
+            if (number < 0) {
+                throw new IllegalArgumentException("Negative " + name + ": " + value);
+            }
+            return number;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid " + name + ": " + value);
+        }
+    }
+
+    private static Rating rating(String stars) {
+        Rating[] ratings = Rating.values();
+        try {
+            return ratings[Integer.parseInt(stars)];
+        } catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("Rating must be a number of stars from 0 to "
+                    + (ratings.length - 1) + ": " + stars);
+        }
+    }
+
+    private static final class MethodNotAllowed extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        private MethodNotAllowed(String allowed) {
+            super(allowed, null, false, false);
+        }
+    }
+
+    private static final class PayloadTooLarge extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        private PayloadTooLarge() {
+            super("Request body is larger than " + MAX_BODY + " bytes", null, false, false);
+        }
+    }
+}
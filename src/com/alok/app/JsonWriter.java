@@ -0,0 +1,149 @@
+package com.alok.app;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Minimal streaming JSON writer into a {@link StringBuilder}, placing the commas between members and array
+ * elements itself. Numbers are written as plain decimals, so that prices keep their scale.
+ */
+final class JsonWriter {
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private final StringBuilder out;
+    private boolean comma;
+
+    /**
+     * Instantiates a new Json writer.
+     *
+     * @param capacity the expected length of the document
+     */
+    JsonWriter(int capacity) {
+        out = new StringBuilder(capacity);
+    }
+
+    JsonWriter beginObject() {
+        separate();
+        out.append('{');
+        comma = false;
+        return this;
+    }
+
+    JsonWriter endObject() {
+        out.append('}');
+        comma = true;
+        return this;
+    }
+
+    JsonWriter beginArray() {
+        separate();
+        out.append('[');
+        comma = false;
+        return this;
+    }
+
+    JsonWriter endArray() {
+        out.append(']');
+        comma = true;
+        return this;
+    }
+
+    /**
+     * Writes the name of an object member, to be followed by its value.
+     *
+     * @param name the name
+     * @return the json writer
+     */
+    JsonWriter name(String name) {
+        separate();
+        string(name);
+        out.append(':');
+        comma = false;
+        return this;
+    }
+
+    JsonWriter value(String value) {
+        separate();
+        if (value == null) {
+            out.append("null");
+        } else {
+            string(value);
+        }
+        comma = true;
+        return this;
+    }
+
+    JsonWriter value(long value) {
+        separate();
+        out.append(value);
+        comma = true;
+        return this;
+    }
+
+    JsonWriter value(BigDecimal value) {
+        separate();
+        out.append(value == null ? "null" : value.toPlainString());
+        comma = true;
+        return this;
+    }
+
+    JsonWriter value(boolean value) {
+        separate();
+        out.append(value);
+        comma = true;
+        return this;
+    }
+
+    /**
+     * Encodes the document.
+     *
+     * @return the document in UTF-8
+     */
+    byte[] toBytes() {
+        return out.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public String toString() {
+        return out.toString();
+    }
+
+    private void separate() {
+        if (comma) {
+            out.append(',');
+        }
+    }
+
+    private void string(String value) {
+        out.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"':
+                    out.append("\\\"");
+                    break;
+                case '\\':
+                    out.append("\\\\");
+                    break;
+                case '\n':
+                    out.append("\\n");
+                    break;
+                case '\r':
+                    out.append("\\r");
+                    break;
+                case '\t':
+                    out.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20 || c == '\u2028' || c == '\u2029') {
+                        out.append("\\u").append(HEX[c >> 12]).append(HEX[(c >> 8) & 15])
+                                .append(HEX[(c >> 4) & 15]).append(HEX[c & 15]);
+                    } else {
+                        out.append(c);
+                    }
+            }
+        }
+        out.append('"');
+    }
+}
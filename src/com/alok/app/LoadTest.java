@@ -0,0 +1,146 @@
+package com.alok.app;
+
+import com.alok.data.LatencyHistogram;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Closed loop load test of a {@link CatalogServer}: every worker thread sends one request at a time over a
+ * shared keep-alive HTTP/1.1 client, in a fixed mix of finds, listings, reports, reviews and discount
+ * summaries, each in a locale picked at random. After a warm up, the latency of every response is recorded
+ * in a {@link LatencyHistogram} per request type, and the throughput and latency percentiles are printed at
+ * the end. Requests answered with a server error, or not answered, are counted as errors.
+ * <p>
+ * Usage: {@code LoadTest [baseUrl] [threads] [seconds] [products] [warmupSeconds]}
+ */
+public class LoadTest {
+
+    private static final String[] LANG_TAGS = {"en-US", "fr-FR", "ru-RU", "zh-TW", "hi-IN"};
+
+    private enum Request {
+        FIND(60), LIST(15), REPORT(10), REVIEW(10), DISCOUNT(5);
+
+        private final int weight;
+
+        Request(int weight) {
+            this.weight = weight;
+        }
+    }
+
+    /**
+     * The entry point of application.
+     *
+     * @param args the input arguments
+     * @throws InterruptedException the interrupted exception
+     */
+    public static void main(String[] args) throws InterruptedException {
+        String baseUrl = args.length > 0 ? args[0] : "http://localhost:8080";
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : 16;
+        int seconds = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+        int products = args.length > 3 ? Integer.parseInt(args[3]) : 10_000;
+        int warmup = args.length > 4 ? Integer.parseInt(args[4]) : 2;
+
+        HttpClient client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+        Map<Request, LatencyHistogram> histograms = new EnumMap<>(Request.class);
+        for (Request request : Request.values()) {
+            histograms.put(request, new LatencyHistogram());
+        }
+        LatencyHistogram all = new LatencyHistogram();
+        LongAdder errors = new LongAdder();
+        long measureFrom = System.nanoTime() + Duration.ofSeconds(warmup).toNanos();
+        long end = measureFrom + Duration.ofSeconds(seconds).toNanos();
+
+        List<Thread> workers = new ArrayList<>(threads);
+        for (int i = 0; i < threads; i++) {
+            Thread worker = new Thread(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                long now;
+                while ((now = System.nanoTime()) < end) {
+                    Request type = pick(random.nextInt(100));
+                    HttpRequest request = request(baseUrl, type, random.nextInt(products),
+                            LANG_TAGS[random.nextInt(LANG_TAGS.length)], random);
+                    boolean failed;
+                    try {
+                        failed = client.send(request, HttpResponse.BodyHandlers.ofByteArray()).statusCode() >= 500;
+                    } catch (Exception e) {
+                        failed = true;
+                    }
+                    long elapsed = System.nanoTime() - now;
+                    if (now >= measureFrom) {
+                        histograms.get(type).record(elapsed);
+                        all.record(elapsed);
+                        if (failed) {
+                            errors.increment();
+                        }
+                    }
+                }
+            }, "load-" + i);
+            worker.start();
+            workers.add(worker);
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+
+        System.out.printf("%d threads, %d s after %d s warm up, %d errors%n", threads, seconds, warmup, errors.sum());
+        System.out.printf("%-10s %10s %10s %10s %10s %10s %10s %10s%n",
+                "request", "count", "req/s", "p50 us", "p90 us", "p99 us", "p99.9 us", "max us");
+        for (Request request : Request.values()) {
+            print(request.name(), histograms.get(request), seconds);
+        }
+        print("ALL", all, seconds);
+    }
+
+    private static Request pick(int percent) {
+        for (Request request : Request.values()) {
+            if (percent < request.weight) {
+                return request;
+            }
+            percent -= request.weight;
+        }
+        return Request.FIND;
+    }
+
+    private static HttpRequest request(String baseUrl, Request type, int id, String lang, ThreadLocalRandom random) {
+        HttpRequest.Builder builder = HttpRequest.newBuilder().timeout(Duration.ofSeconds(30))
+                .header("Accept-Language", lang);
+        switch (type) {
+            case LIST:
+                return builder.uri(URI.create(baseUrl + "/products?minRating=" + random.nextInt(5)
+                        + "&sort=-rating,price&limit=20")).build();
+            case REPORT:
+                return builder.uri(URI.create(baseUrl + "/products/" + id + "/report?limit=10")).build();
+            case REVIEW:
+                return builder.uri(URI.create(baseUrl + "/products/" + id + "/reviews"))
+                        .header("Content-Type", "application/x-www-form-urlencoded")
+                        .POST(HttpRequest.BodyPublishers.ofString("rating=" + random.nextInt(6)
+                                + "&comments=Load+test+review"))
+                        .build();
+            case DISCOUNT:
+                return builder.uri(URI.create(baseUrl + "/discounts")).build();
+            default:
+                return builder.uri(URI.create(baseUrl + "/products/" + id)).build();
+        }
+    }
+
+    private static void print(String name, LatencyHistogram histogram, int seconds) {
+        System.out.printf("%-10s %10d %10.0f %10.1f %10.1f %10.1f %10.1f %10.1f%n",
+                name, histogram.getCount(), histogram.getCount() / (double) seconds,
+                histogram.getValueAtPercentile(50) / 1000.0, histogram.getValueAtPercentile(90) / 1000.0,
+                histogram.getValueAtPercentile(99) / 1000.0, histogram.getValueAtPercentile(99.9) / 1000.0,
+                histogram.getMax() / 1000.0);
+    }
+}
@@ -0,0 +1,97 @@
+package com.alok.app;
+
+import com.alok.data.CatalogStore;
+import com.alok.data.ProductManager;
+import com.alok.data.Rating;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.Comparator;
+import java.util.Locale;
+import java.util.Random;
+import java.util.stream.Stream;
+
+/**
+ * Measures how long a {@link CatalogStore} takes to recover catalogs of growing size,
+ * from a snapshot plus a journal tail of 10% of the reviews.
+ * <p>
+ * Usage: {@code RestartBenchmark [reviewsPerProduct] [size...]}
+ */
+public class RestartBenchmark {
+
+    /**
+     * The entry point of application.
+     *
+     * @param args the input arguments
+     * @throws IOException the io exception
+     */
+    public static void main(String[] args) throws IOException {
+        int reviewsPerProduct = args.length > 0 ? Integer.parseInt(args[0]) : 5;
+        int[] sizes = args.length > 1
+                ? Stream.of(args).skip(1).mapToInt(Integer::parseInt).toArray()
+                : new int[]{1_000, 10_000, 100_000, 1_000_000};
+
+        System.out.printf("%12s %12s %12s %12s%n", "products", "reviews", "snapshot MB", "restart ms");
+        for (int size : sizes) {
+            Path directory = Files.createTempDirectory("catalog-store");
+            try {
+                long reviews = populate(directory, size, reviewsPerProduct);
+                long bytes;
+                try (Stream<Path> files = Files.list(directory)) {
+                    bytes = files.mapToLong(RestartBenchmark::size).sum();
+                }
+                ProductManager pm = new ProductManager(Locale.US, true);
+                try (CatalogStore store = CatalogStore.open(directory, pm)) {
+                    System.out.printf("%12d %12d %12.1f %12d%n", size, reviews, bytes / (1024.0 * 1024.0),
+                            store.getRecoveryTime().toMillis());
+                }
+            } finally {
+                delete(directory);
+            }
+        }
+    }
+
+    private static long populate(Path directory, int size, int reviewsPerProduct) throws IOException {
+        Random random = new Random(size);
+        Rating[] ratings = Rating.values();
+        ProductManager pm = new ProductManager(Locale.US, true);
+        long reviews = 0;
+        try (CatalogStore store = CatalogStore.open(directory, pm, 0)) {
+            for (int id = 0; id < size; id++) {
+                BigDecimal price = BigDecimal.valueOf(random.nextInt(10_000), 2);
+                if (id % 2 == 0) {
+                    pm.createProduct(id, "Drink " + id, price, Rating.NOT_RATED);
+                } else {
+                    pm.createProduct(id, "Food " + id, price, Rating.NOT_RATED, LocalDate.now().plusDays(id % 30));
+                }
+            }
+            long snapshotAt = (long) size * reviewsPerProduct * 9 / 10;
+            for (long i = 0; i < (long) size * reviewsPerProduct; i++) {
+                if (i == snapshotAt) {
+                    store.snapshot();
+                }
+                pm.reviewProduct(random.nextInt(size), ratings[random.nextInt(ratings.length)], "Review number " + i);
+                reviews++;
+            }
+            store.sync();
+        }
+        return reviews;
+    }
+
+    private static long size(Path file) {
+        try {
+            return Files.size(file);
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    private static void delete(Path directory) throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(file -> file.toFile().delete());
+        }
+    }
+}
@@ -43,11 +43,7 @@ public class Shop {
         pm.reviewProduct(102, Rating.FIVE_STAR, "It's perfect with ten spoon of sugar!");
         pm.printProductReport(102);
 
-        Comparator<Product> byRating = (p1, p2) -> p2.getRating().ordinal() - p1.getRating().ordinal();
-        Comparator<Product> byPrice = (p1, p2) -> p2.getPrice().compareTo(p1.getPrice());
-        Predicate<Product> filterByRating = p -> p.getPrice().floatValue() < 2;
-
-        pm.printProducts(filterByRating, byRating.thenComparing(byPrice).reversed());
+        pm.printProducts(ProductQuery.create().maxPrice(BigDecimal.valueOf(2)).sortByRating(false).sortByPrice(false));
         pm.getDiscount()
                 .forEach((rating, discount) -> System.out.println(rating + "\t" + discount));*/
 
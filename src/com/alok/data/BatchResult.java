@@ -0,0 +1,121 @@
+package com.alok.data;
+
+/**
+ * Outcome of one item of a batch call, at the position of the item in the batch.
+ */
+public final class BatchResult {
+
+    /**
+     * The outcome of an item.
+     */
+    public enum Status {
+        /**
+         * The product was created.
+         */
+        CREATED,
+        /**
+         * A product with the same id already exists and was left unchanged.
+         */
+        EXISTS,
+        /**
+         * The review was added.
+         */
+        REVIEWED,
+        /**
+         * There is no product with the id.
+         */
+        NOT_FOUND,
+        /**
+         * The item is invalid, see the message.
+         */
+        INVALID
+    }
+
+    private final int index;
+    private final int id;
+    private final Status status;
+    private final Product product;
+    private final String message;
+
+    /**
+     * Instantiates a new Batch result.
+     *
+     * @param index   the position of the item in the batch
+     * @param id      the product id
+     * @param status  the status
+     * @param product the product, null unless created, existing or reviewed
+     * @param message the message, null unless invalid
+     */
+    BatchResult(int index, int id, Status status, Product product, String message) {
+        this.index = index;
+        this.id = id;
+        this.status = status;
+        this.product = product;
+        this.message = message;
+    }
+
+    /**
+     * Gets index.
+     *
+     * @return the position of the item in the batch
+     */
+    public int getIndex() {
+        return index;
+    }
+
+    /**
+     * Gets id.
+     *
+     * @return the product id
+     */
+    public int getId() {
+        return id;
+    }
+
+    /**
+     * Gets status.
+     *
+     * @return the status
+     */
+    public Status getStatus() {
+        return status;
+    }
+
+    /**
+     * Gets product.
+     *
+     * @return the created or existing product, or for a review the product re-rated by all the reviews of the
+     * batch; null when not found or invalid
+     */
+    public Product getProduct() {
+        return product;
+    }
+
+    /**
+     * Gets message.
+     *
+     * @return why the item is invalid, or null
+     */
+    public String getMessage() {
+        return message;
+    }
+
+    /**
+     * Is success boolean.
+     *
+     * @return whether the item was applied
+     */
+    public boolean isSuccess() {
+        return status == Status.CREATED || status == Status.REVIEWED;
+    }
+
+    /**
+     * To string string.
+     *
+     * @return the string
+     */
+    @Override
+    public String toString() {
+        return index + " " + id + " " + status + (message == null ? "" : " " + message);
+    }
+}
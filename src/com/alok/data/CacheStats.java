@@ -0,0 +1,95 @@
+package com.alok.data;
+
+/**
+ * Point in time statistics of a bounded cache.
+ */
+public class CacheStats {
+    private final long hits;
+    private final long misses;
+    private final long evictions;
+    private final int size;
+    private final int capacity;
+
+    /**
+     * Instantiates a new Cache stats.
+     *
+     * @param hits      the hits
+     * @param misses    the misses
+     * @param evictions the evictions
+     * @param size      the size
+     * @param capacity  the capacity
+     */
+    CacheStats(long hits, long misses, long evictions, int size, int capacity) {
+        this.hits = hits;
+        this.misses = misses;
+        this.evictions = evictions;
+        this.size = size;
+        this.capacity = capacity;
+    }
+
+    /**
+     * Gets hits.
+     *
+     * @return the hits
+     */
+    public long getHits() {
+        return hits;
+    }
+
+    /**
+     * Gets misses.
+     *
+     * @return the misses
+     */
+    public long getMisses() {
+        return misses;
+    }
+
+    /**
+     * Gets evictions.
+     *
+     * @return the number of entries evicted to stay within the capacity
+     */
+    public long getEvictions() {
+        return evictions;
+    }
+
+    /**
+     * Gets size.
+     *
+     * @return the number of cached entries
+     */
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * Gets capacity.
+     *
+     * @return the capacity
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Gets hit rate.
+     *
+     * @return the share of lookups that were hits, 0 when there were none
+     */
+    public double getHitRate() {
+        long lookups = hits + misses;
+        return lookups == 0 ? 0 : (double) hits / lookups;
+    }
+
+    @Override
+    public String toString() {
+        return "CacheStats{" +
+                "hits=" + hits +
+                ", misses=" + misses +
+                ", evictions=" + evictions +
+                ", size=" + size +
+                ", capacity=" + capacity +
+                '}';
+    }
+}
@@ -0,0 +1,163 @@
+package com.alok.data;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+
+/**
+ * Compact binary encoding of products and reviews shared by the journal and the snapshot files.
+ * <pre>
+ * product: type(byte 'D'|'F') id(int) name(string) price(decimal) rating(byte) [bestBefore(long epoch day), food only]
+ * review:  rating(byte) comments(string)
+ * string:  length(int, -1 for null) utf8 bytes
+ * decimal: scale(int) length(byte 1..255 | 0 then int) unscaled two's complement bytes
+ * </pre>
+ * The unscaled bytes of a decimal are never empty, so a zero length byte announces a length of more than 255
+ * bytes written as an int; shorter decimals keep the one byte length.
+ */
+final class CatalogCodec {
+
+    private static final Rating[] RATINGS = Rating.values();
+
+    private CatalogCodec() {
+    }
+
+    /**
+     * Writes a product.
+     *
+     * @param out     the output
+     * @param product the product
+     * @throws IOException the io exception
+     */
+    static void writeProduct(DataOutput out, Product product) throws IOException {
+        boolean food = product instanceof Food;
+        out.writeByte(food ? DataLineParser.FOOD : DataLineParser.DRINK);
+        out.writeInt(product.getId());
+        writeString(out, product.getName());
+        writeDecimal(out, product.getPrice());
+        out.writeByte(product.getRating().ordinal());
+        if (food) {
+            out.writeLong(product.getBestBefore().toEpochDay());
+        }
+    }
+
+    /**
+     * Reads a product.
+     *
+     * @param in the input
+     * @return the product
+     * @throws IOException when the bytes are not a product
+     */
+    static Product readProduct(ByteBuffer in) throws IOException {
+        byte type = in.get();
+        int id = in.getInt();
+        String name = readString(in);
+        BigDecimal price = readDecimal(in);
+        Rating rating = readRating(in);
+        switch (type) {
+            case DataLineParser.DRINK:
+                return new Drink(id, name, price, rating);
+            case DataLineParser.FOOD:
+                return new Food(id, name, price, rating, LocalDate.ofEpochDay(in.getLong()));
+            default:
+                throw new IOException("Unknown product type " + type);
+        }
+    }
+
+    /**
+     * Writes a review.
+     *
+     * @param out    the output
+     * @param review the review
+     * @throws IOException the io exception
+     */
+    static void writeReview(DataOutput out, Review review) throws IOException {
+        out.writeByte(review.getRating().ordinal());
+        writeString(out, review.getComments());
+    }
+
+    /**
+     * Reads a review.
+     *
+     * @param in the input
+     * @return the review
+     * @throws IOException when the bytes are not a review
+     */
+    static Review readReview(ByteBuffer in) throws IOException {
+        Rating rating = readRating(in);
+        return new Review(rating, readString(in));
+    }
+
+    /**
+     * Reads a rating.
+     *
+     * @param in the input
+     * @return the rating
+     * @throws IOException when the byte is not a rating ordinal
+     */
+    static Rating readRating(ByteBuffer in) throws IOException {
+        int ordinal = in.get();
+        if (ordinal < 0 || ordinal >= RATINGS.length) {
+            throw new IOException("Invalid rating " + ordinal);
+        }
+        return RATINGS[ordinal];
+    }
+
+    private static void writeString(DataOutput out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer in) throws IOException {
+        int length = in.getInt();
+        if (length < 0) {
+            return null;
+        }
+        if (length > in.remaining()) {
+            throw new IOException("Truncated string of " + length + " bytes");
+        }
+        if (in.hasArray()) {
+            String value = new String(in.array(), in.arrayOffset() + in.position(), length, StandardCharsets.UTF_8);
+            in.position(in.position() + length);
+            return value;
+        }
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeDecimal(DataOutput out, BigDecimal value) throws IOException {
+        byte[] unscaled = value.unscaledValue().toByteArray();
+        out.writeInt(value.scale());
+        if (unscaled.length <= 0xFF) {
+            out.writeByte(unscaled.length);
+        } else {
+            out.writeByte(0);
+            out.writeInt(unscaled.length);
+        }
+        out.write(unscaled);
+    }
+
+    private static BigDecimal readDecimal(ByteBuffer in) throws IOException {
+        int scale = in.getInt();
+        int length = in.get() & 0xFF;
+        if (length == 0) {
+            length = in.getInt();
+        }
+        if (length <= 0 || length > in.remaining()) {
+            throw new IOException("Invalid decimal of " + length + " bytes");
+        }
+        byte[] unscaled = new byte[length];
+        in.get(unscaled);
+        return new BigDecimal(new BigInteger(unscaled), scale);
+    }
+}
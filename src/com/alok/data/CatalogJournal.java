@@ -0,0 +1,283 @@
+package com.alok.data;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+
+/**
+ * Append only write ahead journal of catalog changes.
+ * <p>
+ * Every {@code createProduct} and {@code reviewProduct} is appended as one record
+ * {@code length(int) crc32(int) kind(byte) payload}, encoded with {@link CatalogCodec}. Appending only copies
+ * the record into a buffer; a single writer thread drains the buffer, writes it and forces it to disk, so every
+ * records appended while the previous fsync was running share the next one (group commit). Callers that need
+ * durability wait for the sequence number returned by {@code append}, which
+ * {@link ProductManager#awaitDurable(int)} does for the latest record of a product.
+ */
+final class CatalogJournal implements Closeable {
+
+    private static final Logger logger = Logger.getLogger(CatalogJournal.class.getName());
+
+    /**
+     * Record kind of a created product.
+     */
+    static final byte PRODUCT = 1;
+    /**
+     * Record kind of a review.
+     */
+    static final byte REVIEW = 2;
+
+    private final long lingerNanos;
+    private final Thread writer;
+
+    private FileChannel channel;
+    private ByteArrayOutputStream pending = new ByteArrayOutputStream(64 * 1024);
+    private ByteArrayOutputStream writing = new ByteArrayOutputStream(64 * 1024);
+    private long appended;
+    private long durable;
+    private boolean flushing;
+    private boolean closed;
+    private IOException failure;
+
+    /**
+     * Opens a journal segment for appending.
+     *
+     * @param segment the segment file, created when missing
+     * @param linger  how long the writer waits for more records before forcing a batch, in milliseconds
+     * @throws IOException the io exception
+     */
+    CatalogJournal(Path segment, long linger) throws IOException {
+        this.channel = open(segment);
+        this.lingerNanos = linger * 1_000_000L;
+        this.writer = new Thread(this::writeLoop, "catalog-journal");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Appends a created product.
+     *
+     * @param product the product
+     * @return the sequence number of the record
+     * @throws IOException when the journal failed or is closed
+     */
+    long appendProduct(Product product) throws IOException {
+        ByteArrayOutputStream body = new ByteArrayOutputStream(64);
+        DataOutputStream out = new DataOutputStream(body);
+        out.writeByte(PRODUCT);
+        CatalogCodec.writeProduct(out, product);
+        return append(body);
+    }
+
+    /**
+     * Appends reviews of one product.
+     *
+     * @param id      the product id
+     * @param reviews the reviews
+     * @return the sequence number of the last record
+     * @throws IOException when the journal failed or is closed
+     */
+    long appendReviews(int id, List<Review> reviews) throws IOException {
+        long sequence = 0;
+        for (Review review : reviews) {
+            ByteArrayOutputStream body = new ByteArrayOutputStream(64);
+            DataOutputStream out = new DataOutputStream(body);
+            out.writeByte(REVIEW);
+            out.writeInt(id);
+            CatalogCodec.writeReview(out, review);
+            sequence = append(body);
+        }
+        return sequence;
+    }
+
+    private synchronized long append(ByteArrayOutputStream body) throws IOException {
+        checkOpen();
+        CRC32 crc = new CRC32();
+        byte[] bytes = body.toByteArray();
+        crc.update(bytes, 0, bytes.length);
+        DataOutputStream out = new DataOutputStream(pending);
+        out.writeInt(bytes.length);
+        out.writeInt((int) crc.getValue());
+        out.write(bytes);
+        appended++;
+        notifyAll();
+        return appended;
+    }
+
+    /**
+     * Waits until the record with the given sequence number, and every record before it, is on disk.
+     *
+     * @param sequence the sequence number
+     * @throws IOException when the journal failed before the record was written
+     */
+    synchronized void await(long sequence) throws IOException {
+        try {
+            while (durable < sequence) {
+                if (failure != null) {
+                    throw failure;
+                }
+                wait();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for the journal");
+        }
+    }
+
+    /**
+     * Waits until every record appended so far is on disk.
+     *
+     * @return the durable sequence number
+     * @throws IOException when the journal failed
+     */
+    long sync() throws IOException {
+        long sequence;
+        synchronized (this) {
+            sequence = appended;
+        }
+        await(sequence);
+        return sequence;
+    }
+
+    /**
+     * Makes everything appended so far durable in the current segment and continues in a new one.
+     *
+     * @param segment the new segment file
+     * @throws IOException the io exception
+     */
+    synchronized void rotate(Path segment) throws IOException {
+        checkOpen();
+        awaitIdle();
+        flush(pending);
+        FileChannel previous = channel;
+        channel = open(segment);
+        previous.close();
+    }
+
+    /**
+     * Gets appended.
+     *
+     * @return the sequence number of the last appended record
+     */
+    synchronized long getAppended() {
+        return appended;
+    }
+
+    @Override
+    public void close() throws IOException {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            awaitIdle();
+            flush(pending);
+            closed = true;
+            notifyAll();
+        }
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        channel.close();
+    }
+
+    private void writeLoop() {
+        while (true) {
+            long batchEnd;
+            synchronized (this) {
+                try {
+                    while (pending.size() == 0 && !closed) {
+                        wait();
+                    }
+                    if (closed) {
+                        return;
+                    }
+                    // linger so that concurrent appenders join this fsync
+                    long deadline = System.nanoTime() + lingerNanos;
+                    long remaining;
+                    while ((remaining = deadline - System.nanoTime()) > 0 && !closed) {
+                        wait(remaining / 1_000_000L, (int) (remaining % 1_000_000L));
+                    }
+                } catch (InterruptedException e) {
+                    return;
+                }
+                ByteArrayOutputStream batch = pending;
+                pending = writing;
+                writing = batch;
+                batchEnd = appended;
+                flushing = true;
+            }
+            IOException error = null;
+            try {
+                write(writing);
+                channel.force(false);
+            } catch (IOException e) {
+                error = e;
+                logger.log(Level.SEVERE, "Journal write failed", e);
+            }
+            synchronized (this) {
+                writing.reset();
+                flushing = false;
+                if (error == null) {
+                    durable = batchEnd;
+                } else {
+                    failure = error;
+                }
+                notifyAll();
+            }
+        }
+    }
+
+    private void awaitIdle() throws IOException {
+        try {
+            while (flushing) {
+                wait();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for the journal");
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    private void flush(ByteArrayOutputStream buffer) throws IOException {
+        write(buffer);
+        buffer.reset();
+        channel.force(false);
+        durable = appended;
+        notifyAll();
+    }
+
+    private void write(ByteArrayOutputStream buffer) throws IOException {
+        ByteBuffer bytes = ByteBuffer.wrap(buffer.toByteArray());
+        while (bytes.hasRemaining()) {
+            channel.write(bytes);
+        }
+    }
+
+    private void checkOpen() throws IOException {
+        if (closed) {
+            throw new IOException("Journal is closed");
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    private static FileChannel open(Path segment) throws IOException {
+        return FileChannel.open(segment, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+}
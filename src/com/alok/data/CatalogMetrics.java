@@ -0,0 +1,192 @@
+package com.alok.data;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Operation metrics of a {@link ProductManager}: a {@link LatencyHistogram} per {@link Operation}, parse failure
+ * counters by cause, and gauges of the catalog size. Operations slower than the slow threshold are also
+ * emitted as {@code com.alok.data.SlowOperation} flight recorder events.
+ * <p>
+ * Metrics are disabled by default. A disabled operation only reads one volatile flag; it is not timed, and the
+ * gauges are computed when they are read, never on the operation path.
+ */
+public final class CatalogMetrics {
+
+    private static final long DISABLED = 0;
+
+    private final Map<Operation, LatencyHistogram> histograms = new EnumMap<>(Operation.class);
+    private final Map<String, LongAdder> parseFailures = new ConcurrentHashMap<>();
+    private final LongSupplier products;
+    private final LongSupplier reviews;
+    private volatile boolean enabled;
+    private volatile long slowNanos = Duration.ofMillis(10).toNanos();
+
+    /**
+     * Instantiates new Catalog metrics.
+     *
+     * @param products the gauge of the number of products
+     * @param reviews  the gauge of the number of reviews
+     */
+    CatalogMetrics(LongSupplier products, LongSupplier reviews) {
+        this.products = products;
+        this.reviews = reviews;
+        for (Operation operation : Operation.values()) {
+            histograms.put(operation, new LatencyHistogram());
+        }
+    }
+
+    /**
+     * Is enabled boolean.
+     *
+     * @return whether operations are measured
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Sets enabled.
+     *
+     * @param enabled whether operations are measured
+     */
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    /**
+     * Sets the latency from which an operation is emitted as a flight recorder event.
+     *
+     * @param threshold the threshold
+     */
+    public void setSlowThreshold(Duration threshold) {
+        this.slowNanos = threshold.toNanos();
+    }
+
+    /**
+     * Gets the latency histogram of an operation.
+     *
+     * @param operation the operation
+     * @return the histogram, live
+     */
+    public LatencyHistogram getHistogram(Operation operation) {
+        return histograms.get(operation);
+    }
+
+    /**
+     * Gets the parse failures by cause: the invalid field, {@code layout} or {@code type}.
+     *
+     * @return a copy of the failure counts, sorted by cause
+     */
+    public Map<String, Long> getParseFailures() {
+        Map<String, Long> failures = new TreeMap<>();
+        parseFailures.forEach((cause, count) -> failures.put(cause, count.sum()));
+        return failures;
+    }
+
+    /**
+     * Gets product count.
+     *
+     * @return the number of products in the catalog
+     */
+    public long getProductCount() {
+        return products.getAsLong();
+    }
+
+    /**
+     * Gets review count.
+     *
+     * @return the number of reviews in the catalog, counted when called
+     */
+    public long getReviewCount() {
+        return reviews.getAsLong();
+    }
+
+    /**
+     * Writes the metrics as a text table, latencies in microseconds.
+     *
+     * @param out the output
+     * @throws IOException the io exception
+     */
+    public void dump(Appendable out) throws IOException {
+        out.append(String.format("%-10s %10s %10s %10s %10s %10s %10s %10s%n",
+                "operation", "count", "mean us", "p50 us", "p90 us", "p99 us", "p99.9 us", "max us"));
+        for (Operation operation : Operation.values()) {
+            LatencyHistogram histogram = histograms.get(operation);
+            out.append(String.format("%-10s %10d %10.1f %10.1f %10.1f %10.1f %10.1f %10.1f%n",
+                    operation, histogram.getCount(), histogram.getMean() / 1000,
+                    histogram.getValueAtPercentile(50) / 1000.0, histogram.getValueAtPercentile(90) / 1000.0,
+                    histogram.getValueAtPercentile(99) / 1000.0, histogram.getValueAtPercentile(99.9) / 1000.0,
+                    histogram.getMax() / 1000.0));
+        }
+        for (Map.Entry<String, Long> failure : getParseFailures().entrySet()) {
+            out.append(String.format("parse failures %-20s %10d%n", failure.getKey(), failure.getValue()));
+        }
+        out.append(String.format("products %d, reviews %d%n", getProductCount(), getReviewCount()));
+    }
+
+    /**
+     * To string string.
+     *
+     * @return the metrics as a text table
+     */
+    @Override
+    public String toString() {
+        StringBuilder text = new StringBuilder();
+        try {
+            dump(text);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return text.toString();
+    }
+
+    /**
+     * Starts measuring an operation.
+     *
+     * @return the start time to pass to {@link #stop(Operation, long)}, or 0 when metrics are disabled
+     */
+    long start() {
+        return enabled ? System.nanoTime() : DISABLED;
+    }
+
+    /**
+     * Records an operation.
+     *
+     * @param operation the operation
+     * @param start     the time returned by {@link #start()}
+     */
+    void stop(Operation operation, long start) {
+        if (start == DISABLED) {
+            return;
+        }
+        long elapsed = System.nanoTime() - start;
+        histograms.get(operation).record(elapsed);
+        if (elapsed >= slowNanos) {
+            SlowOperationEvent event = new SlowOperationEvent();
+            if (event.shouldCommit()) {
+                event.operation = operation.name();
+                event.elapsed = elapsed;
+                event.commit();
+            }
+        }
+    }
+
+    /**
+     * Counts a parse failure.
+     *
+     * @param cause the cause
+     */
+    void parseFailed(String cause) {
+        if (enabled) {
+            parseFailures.computeIfAbsent(cause, key -> new LongAdder()).increment();
+        }
+    }
+}
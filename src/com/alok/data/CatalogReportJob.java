@@ -0,0 +1,177 @@
+package com.alok.data;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Predicate;
+
+/**
+ * Bulk report of the products of a {@link ProductManager} in several locales, one UTF-8 file per locale, each
+ * holding exactly what {@link ProductManager#writeProducts(Predicate, Comparator, String, int, int, Appendable)}
+ * writes for the whole catalog.
+ * <p>
+ * The products are taken from one {@link CatalogSnapshot} and sorted once, in parallel. The sorted products are
+ * cut into ranges, and every range of every locale is rendered by a fork-join task into a buffer of its own;
+ * workers format with their own copies of the formats and bypass the shared render caches. The calling thread
+ * writes the buffers of each file in range order through a file channel while later ranges are rendered, at
+ * most a few ranges per worker ahead, so memory stays bounded whatever the size of the catalog.
+ */
+public class CatalogReportJob {
+
+    private static final int RANGE_SIZE = 2048;
+
+    private final ProductManager manager;
+    private final ForkJoinPool pool;
+
+    /**
+     * Instantiates a new Catalog report job on the common fork-join pool.
+     *
+     * @param manager the manager
+     */
+    public CatalogReportJob(ProductManager manager) {
+        this(manager, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Instantiates a new Catalog report job.
+     *
+     * @param manager the manager
+     * @param pool    the pool rendering the ranges
+     */
+    public CatalogReportJob(ProductManager manager, ForkJoinPool pool) {
+        this.manager = manager;
+        this.pool = pool;
+    }
+
+    /**
+     * Writes the report of every supported locale.
+     *
+     * @param directory the directory of the files, created when missing
+     * @param filter    the filter
+     * @param sorter    the sorter
+     * @return the files, by language tag
+     * @throws IOException the io exception
+     */
+    public Map<String, Path> run(Path directory, Predicate<Product> filter, Comparator<Product> sorter) throws IOException {
+        return run(directory, filter, sorter, manager.supportedLocals());
+    }
+
+    /**
+     * Writes the report of the given locales to files named {@code products_<lang tag>.txt}.
+     *
+     * @param directory the directory of the files, created when missing
+     * @param filter    the filter
+     * @param sorter    the sorter
+     * @param langTags  the lang tags
+     * @return the files, by language tag
+     * @throws IOException the io exception
+     */
+    public Map<String, Path> run(Path directory, Predicate<Product> filter, Comparator<Product> sorter, Collection<String> langTags) throws IOException {
+        Files.createDirectories(directory);
+        String[] tags = langTags.toArray(new String[0]);
+        Product[] products = manager.snapshot().products().filter(filter).toArray(Product[]::new);
+        Arrays.parallelSort(products, sorter.thenComparingInt(Product::getId));
+        long start = manager.getMetrics().start();
+        Map<String, Path> files = new TreeMap<>();
+        FileChannel[] channels = new FileChannel[tags.length];
+        ArrayDeque<ForkJoinTask<ByteBuffer>> pending = new ArrayDeque<>();
+        try {
+            ResourceFormatter[] formatters = new ResourceFormatter[tags.length];
+            for (int i = 0; i < tags.length; i++) {
+                formatters[i] = ProductManager.formatterFor(tags[i]);
+                Path file = directory.resolve("products_" + tags[i] + ".txt");
+                channels[i] = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+                files.put(tags[i], file);
+            }
+            int ranges = (products.length + RANGE_SIZE - 1) / RANGE_SIZE;
+            int window = Math.max(2, pool.getParallelism() * 2);
+            // task k renders range k / tags.length in locale k % tags.length
+            long tasks = (long) ranges * tags.length;
+            long submitted = 0;
+            for (long written = 0; written < tasks; written++) {
+                for (; submitted < tasks && submitted < written + window; submitted++) {
+                    int range = (int) (submitted / tags.length);
+                    int from = range * RANGE_SIZE;
+                    pending.add(pool.submit(new RenderRange(products, from, Math.min(from + RANGE_SIZE, products.length),
+                            formatters[(int) (submitted % tags.length)])));
+                }
+                ByteBuffer buffer = pending.poll().join();
+                FileChannel channel = channels[(int) (written % tags.length)];
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+            }
+        } finally {
+            for (ForkJoinTask<ByteBuffer> task : pending) {
+                task.cancel(false);
+            }
+            for (FileChannel channel : channels) {
+                if (channel != null) {
+                    channel.close();
+                }
+            }
+            manager.getMetrics().stop(Operation.REPORT, start);
+        }
+        return files;
+    }
+
+    /**
+     * Renders a range of products, splitting it in halves down to ranges of 256 products.
+     */
+    private static final class RenderRange extends RecursiveTask<ByteBuffer> {
+
+        private static final long serialVersionUID = 1L;
+        private static final int THRESHOLD = 256;
+
+        private final Product[] products;
+        private final int from;
+        private final int to;
+        private final ResourceFormatter formatter;
+
+        private RenderRange(Product[] products, int from, int to, ResourceFormatter formatter) {
+            this.products = products;
+            this.from = from;
+            this.to = to;
+            this.formatter = formatter;
+        }
+
+        @Override
+        protected ByteBuffer compute() {
+            if (to - from <= THRESHOLD) {
+                StringBuilder text = new StringBuilder((to - from) * 64);
+                for (int i = from; i < to; i++) {
+                    text.append(formatter.formatProduct(products[i])).append('\n');
+                }
+                try {
+                    return StandardCharsets.UTF_8.newEncoder().encode(CharBuffer.wrap(text));
+                } catch (CharacterCodingException e) {
+                    throw new IllegalStateException("Unencodable product line", e);
+                }
+            }
+            int middle = (from + to) >>> 1;
+            RenderRange left = new RenderRange(products, from, middle, formatter);
+            RenderRange right = new RenderRange(products, middle, to, formatter);
+            left.fork();
+            ByteBuffer second = right.compute();
+            ByteBuffer first = left.join();
+            ByteBuffer both = ByteBuffer.allocate(first.remaining() + second.remaining());
+            both.put(first).put(second).flip();
+            return both;
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package com.alok.data;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Immutable view of the products of a {@link ProductManager} as of one version of the catalog: every product
+ * with the rating it had then, whatever changes are made afterwards. Taking a snapshot only reads the current
+ * version, and writers never wait for readers; the products of a version are shared with the later versions,
+ * and a version no snapshot refers to any more is garbage collected.
+ * <p>
+ * The price is paid by writers: every created and every re-rated product publishes a new version by a
+ * compare-and-set of the one current version, so all writers of a manager contend on that single reference and
+ * retry, rebuilding their path of the trie, when another writer published first. Reviews that leave the rating
+ * unchanged publish nothing.
+ */
+public final class CatalogSnapshot {
+
+    private static final Rating[] RATINGS = Rating.values();
+
+    private final PersistentProductMap products;
+
+    /**
+     * Instantiates a new Catalog snapshot.
+     *
+     * @param products the version of the catalog
+     */
+    CatalogSnapshot(PersistentProductMap products) {
+        this.products = products;
+    }
+
+    /**
+     * Gets version.
+     *
+     * @return the number of products added and re-rated up to this snapshot
+     */
+    public long getVersion() {
+        return products.getVersion();
+    }
+
+    /**
+     * Size int.
+     *
+     * @return the number of products
+     */
+    public int size() {
+        return products.size();
+    }
+
+    /**
+     * Find product product.
+     *
+     * @param id the id
+     * @return the product
+     * @throws ProductManagerException the product manager exception
+     */
+    public Product findProduct(int id) throws ProductManagerException {
+        Product product = products.get(id);
+        if (product == null) {
+            throw new ProductManagerException("Product with given id: " + id + " not found.");
+        }
+        return product;
+    }
+
+    /**
+     * Streams the products, in no particular order.
+     *
+     * @return the stream
+     */
+    public Stream<Product> products() {
+        return StreamSupport.stream(Spliterators.spliterator(products.iterator(), products.size(),
+                Spliterator.IMMUTABLE | Spliterator.NONNULL | Spliterator.DISTINCT), false);
+    }
+
+    /**
+     * Lists one page of the products that pass the filter, in sorter order, products the sorter considers
+     * equal ordered by id.
+     *
+     * @param filter the filter
+     * @param sorter the sorter
+     * @param offset the number of matching products to skip
+     * @param limit  the maximum number of products
+     * @return the page
+     */
+    public List<Product> findProducts(Predicate<Product> filter, Comparator<Product> sorter, int offset, int limit) {
+        return select(filter, sorter.thenComparingInt(Product::getId), offset, limit);
+    }
+
+    /**
+     * Sums the discounts of the products per rating at the given time. The result holds every rating of at
+     * least one product, even when its discount is zero.
+     *
+     * @param now the time the discounts are evaluated at
+     * @return the discount totals
+     */
+    public Map<Rating, BigDecimal> getDiscount(LocalDateTime now) {
+        long[] cents = new long[RATINGS.length];
+        boolean[] present = new boolean[RATINGS.length];
+        for (Product product : products) {
+            int rating = product.getRating().ordinal();
+            present[rating] = true;
+            if (product.getDiscount(now).signum() != 0) {
+                cents[rating] = Math.addExact(cents[rating], product.getDiscountCents());
+            }
+        }
+        Map<Rating, BigDecimal> totals = new EnumMap<>(Rating.class);
+        for (Rating rating : RATINGS) {
+            if (present[rating.ordinal()]) {
+                totals.put(rating, BigDecimal.valueOf(cents[rating.ordinal()], 2));
+            }
+        }
+        return totals;
+    }
+
+    /**
+     * Selects one page of the products that pass the filter, in sorter order, keeping only the best
+     * {@code offset + limit} products while scanning.
+     *
+     * @param filter the filter
+     * @param sorter the sorter, a total order
+     * @param offset the number of matching products to skip
+     * @param limit  the maximum number of products
+     * @return the page
+     */
+    List<Product> select(Predicate<Product> filter, Comparator<Product> sorter, int offset, int limit) {
+        if (offset < 0 || limit < 0) {
+            throw new IllegalArgumentException("Offset and limit must not be negative");
+        }
+        long wanted = (long) offset + limit;
+        List<Product> page;
+        if (wanted >= products.size()) {
+            page = new ArrayList<>();
+            for (Product product : products) {
+                if (filter.test(product)) {
+                    page.add(product);
+                }
+            }
+        } else {
+            // keep only the best offset + limit products, the worst of them on top of the heap
+            PriorityQueue<Product> best = new PriorityQueue<>((int) wanted + 1, sorter.reversed());
+            for (Product product : products) {
+                if (filter.test(product)) {
+                    best.add(product);
+                    if (best.size() > wanted) {
+                        best.poll();
+                    }
+                }
+            }
+            page = new ArrayList<>(best);
+        }
+        page.sort(sorter);
+        return new ArrayList<>(page.subList(Math.min(offset, page.size()), (int) Math.min(wanted, page.size())));
+    }
+}
@@ -0,0 +1,361 @@
+package com.alok.data;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+
+/**
+ * Durable storage of a {@link ProductManager} catalog in a directory of journal segments and snapshots.
+ * <p>
+ * Changes are appended to the current segment {@code journal-N.log} of a {@link CatalogJournal}.
+ * A snapshot {@code snapshot-N.bin} holds every product with its reviews as of the start of segment N,
+ * written as a sequence of independently memory mapped blocks. Taking a snapshot briefly blocks writers
+ * while the journal moves to a new segment and the products and review counts of the catalog are captured;
+ * the reviews are read up to those counts and the file is written afterwards, while writers go on. Older
+ * segments and snapshots are then deleted.
+ * On {@link #open(Path, ProductManager)} the latest snapshot is loaded and only the newer segments are
+ * replayed, a torn record at the end of the last segment is cut off. A damaged record in an earlier segment
+ * fails the recovery, since the records after it would be applied on top of the lost ones.
+ */
+public class CatalogStore implements Closeable {
+
+    private static final Logger logger = Logger.getLogger(CatalogStore.class.getName());
+
+    private static final int MAGIC = 0x50524F44;
+    private static final int VERSION = 1;
+    private static final int BLOCK_SIZE = 8 * 1024 * 1024;
+    private static final long DEFAULT_LINGER = 2;
+
+    private final Path directory;
+    private final ProductManager manager;
+    private final CatalogJournal journal;
+    private final Duration recoveryTime;
+    private long segment;
+    private ScheduledExecutorService scheduler;
+
+    private CatalogStore(Path directory, ProductManager manager, long segment, long linger, Duration recoveryTime) throws IOException {
+        this.directory = directory;
+        this.manager = manager;
+        this.segment = segment;
+        this.recoveryTime = recoveryTime;
+        this.journal = new CatalogJournal(segmentFile(segment), linger);
+    }
+
+    /**
+     * Opens the store in a directory with the default group commit linger of 2 ms, recovers its catalog into
+     * an empty manager and journals every later change of that manager.
+     *
+     * @param directory the directory, created when missing
+     * @param manager   the manager, which must not contain products yet
+     * @return the store
+     * @throws IOException the io exception
+     */
+    public static CatalogStore open(Path directory, ProductManager manager) throws IOException {
+        return open(directory, manager, DEFAULT_LINGER);
+    }
+
+    /**
+     * Opens the store in a directory, recovers its catalog into an empty manager and journals every later
+     * change of that manager.
+     *
+     * @param directory the directory, created when missing
+     * @param manager   the manager, which must not contain products yet
+     * @param linger    how long the journal waits to group concurrent changes into one fsync, in milliseconds
+     * @return the store
+     * @throws IOException the io exception
+     */
+    public static CatalogStore open(Path directory, ProductManager manager, long linger) throws IOException {
+        long start = System.nanoTime();
+        Files.createDirectories(directory);
+        TreeMap<Long, Path> snapshots = list(directory, "snapshot-", ".bin");
+        TreeMap<Long, Path> segments = list(directory, "journal-", ".log");
+        long first = 0;
+        if (!snapshots.isEmpty()) {
+            first = snapshots.lastKey();
+            readSnapshot(snapshots.lastEntry().getValue(), manager);
+        }
+        long records = 0;
+        for (Map.Entry<Long, Path> file : segments.tailMap(first).entrySet()) {
+            records += replay(file.getValue(), manager, file.getKey().equals(segments.lastKey()));
+        }
+        long next = Math.max(first, segments.isEmpty() ? 0 : segments.lastKey() + 1);
+        Duration recoveryTime = Duration.ofNanos(System.nanoTime() - start);
+        logger.log(Level.INFO, "Recovered " + directory + " in " + recoveryTime.toMillis() + " ms, replayed " + records + " journal records");
+        CatalogStore store = new CatalogStore(directory, manager, next, linger, recoveryTime);
+        manager.setJournal(store.journal);
+        return store;
+    }
+
+    /**
+     * Gets recovery time.
+     *
+     * @return the time it took to load the snapshot and replay the journal
+     */
+    public Duration getRecoveryTime() {
+        return recoveryTime;
+    }
+
+    /**
+     * Waits until every change made so far is on disk.
+     *
+     * @throws IOException the io exception
+     */
+    public void sync() throws IOException {
+        journal.sync();
+    }
+
+    /**
+     * Takes a snapshot of the catalog and deletes the journal segments it covers.
+     *
+     * @throws IOException the io exception
+     */
+    public synchronized void snapshot() throws IOException {
+        long covered;
+        List<ProductEntry> entries = new ArrayList<>();
+        List<Product> products = new ArrayList<>();
+        List<int[]> counts = new ArrayList<>();
+        manager.checkpoint(() -> {
+            journal.rotate(segmentFile(segment + 1));
+            segment++;
+            manager.forEachEntry(entry -> {
+                entries.add(entry);
+                products.add(entry.getProduct());
+                counts.add(entry.getReviewCounts());
+            });
+        });
+        covered = segment;
+        // reviews only grow, so the counts cut the reviews of the rotation off the ones added since
+        List<List<Review>> reviews = new ArrayList<>(entries.size());
+        for (int i = 0; i < entries.size(); i++) {
+            reviews.add(manager.getReviews(entries.get(i), counts.get(i)));
+        }
+        writeSnapshot(covered, products, reviews);
+        for (Path file : list(directory, "journal-", ".log").headMap(covered).values()) {
+            Files.deleteIfExists(file);
+        }
+        for (Path file : list(directory, "snapshot-", ".bin").headMap(covered).values()) {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    /**
+     * Takes a snapshot at a fixed rate in the background.
+     *
+     * @param period the period between snapshots
+     */
+    public synchronized void scheduleSnapshots(Duration period) {
+        if (scheduler == null) {
+            scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "catalog-snapshot");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        scheduler.scheduleAtFixedRate(() -> {
+            try {
+                snapshot();
+            } catch (IOException e) {
+                logger.log(Level.WARNING, "Snapshot failed", e);
+            }
+        }, period.toMillis(), period.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stops journaling the manager and closes the journal after writing everything appended so far.
+     *
+     * @throws IOException the io exception
+     */
+    @Override
+    public void close() throws IOException {
+        synchronized (this) {
+            if (scheduler != null) {
+                scheduler.shutdownNow();
+            }
+        }
+        manager.setJournal(null);
+        journal.close();
+    }
+
+    private void writeSnapshot(long covered, List<Product> products, List<List<Review>> reviews) throws IOException {
+        Path target = snapshotFile(covered);
+        Path temporary = target.resolveSibling(target.getFileName() + ".tmp");
+        try (OutputStream file = new BufferedOutputStream(Files.newOutputStream(temporary), 64 * 1024)) {
+            DataOutputStream header = new DataOutputStream(file);
+            header.writeInt(MAGIC);
+            header.writeInt(VERSION);
+            header.writeInt(products.size());
+            ByteArrayOutputStream block = new ByteArrayOutputStream(BLOCK_SIZE + 64 * 1024);
+            DataOutputStream out = new DataOutputStream(block);
+            int count = 0;
+            for (int i = 0; i < products.size(); i++) {
+                CatalogCodec.writeProduct(out, products.get(i));
+                out.writeInt(reviews.get(i).size());
+                for (Review review : reviews.get(i)) {
+                    CatalogCodec.writeReview(out, review);
+                }
+                count++;
+                if (block.size() >= BLOCK_SIZE) {
+                    writeBlock(header, block, count);
+                    count = 0;
+                }
+            }
+            if (count > 0) {
+                writeBlock(header, block, count);
+            }
+            header.writeInt(0);
+        }
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE)) {
+            channel.force(true);
+        }
+        Files.move(temporary, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private static void writeBlock(DataOutputStream file, ByteArrayOutputStream block, int count) throws IOException {
+        file.writeInt(block.size());
+        file.writeInt(count);
+        block.writeTo(file);
+        block.reset();
+    }
+
+    private static void readSnapshot(Path file, ProductManager manager) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, 12);
+            if (header.getInt() != MAGIC || header.getInt() != VERSION) {
+                throw new IOException("Not a catalog snapshot: " + file);
+            }
+            int expected = header.getInt();
+            int loaded = 0;
+            long position = 12;
+            while (true) {
+                ByteBuffer blockHeader = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(8, channel.size() - position));
+                int length = blockHeader.getInt();
+                if (length == 0) {
+                    break;
+                }
+                int count = blockHeader.getInt();
+                ByteBuffer block = channel.map(FileChannel.MapMode.READ_ONLY, position + 8, length);
+                for (int i = 0; i < count; i++) {
+                    Product product = CatalogCodec.readProduct(block);
+                    int reviewCount = block.getInt();
+                    List<Review> reviews = new ArrayList<>(reviewCount);
+                    for (int r = 0; r < reviewCount; r++) {
+                        reviews.add(CatalogCodec.readReview(block));
+                    }
+                    manager.restore(product, reviews);
+                }
+                loaded += count;
+                position += 8 + length;
+            }
+            if (loaded != expected) {
+                throw new IOException("Snapshot " + file + " holds " + loaded + " of " + expected + " products");
+            }
+        }
+    }
+
+    /**
+     * Replays a journal segment. Only the last segment may end with a torn record, which is cut off; a damaged
+     * record anywhere else fails with an {@link IOException}.
+     */
+    private static long replay(Path file, ProductManager manager, boolean last) throws IOException {
+        long records = 0;
+        long valid = 0;
+        long size = Files.size(file);
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), 64 * 1024))) {
+            while (size - valid >= 8) {
+                int length = in.readInt();
+                int crc = in.readInt();
+                // the length is checked against the file before it is trusted with an allocation
+                if (length <= 0 || length > size - valid - 8) {
+                    break;
+                }
+                byte[] body = new byte[length];
+                in.readFully(body);
+                CRC32 check = new CRC32();
+                check.update(body, 0, body.length);
+                if ((int) check.getValue() != crc) {
+                    break;
+                }
+                apply(ByteBuffer.wrap(body), manager);
+                records++;
+                valid += 8 + length;
+            }
+        }
+        if (valid < size) {
+            if (!last) {
+                throw new IOException("Journal segment " + file + " is damaged at " + valid + ", a later segment follows");
+            }
+            logger.log(Level.WARNING, "Truncating torn journal tail of " + file + " at " + valid);
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+                channel.truncate(valid);
+            }
+        }
+        return records;
+    }
+
+    private static void apply(ByteBuffer record, ProductManager manager) throws IOException {
+        byte kind = record.get();
+        switch (kind) {
+            case CatalogJournal.PRODUCT:
+                manager.addProduct(CatalogCodec.readProduct(record));
+                break;
+            case CatalogJournal.REVIEW:
+                int id = record.getInt();
+                Review review = CatalogCodec.readReview(record);
+                ProductEntry entry = manager.getEntry(id);
+                if (entry == null) {
+                    throw new IOException("Journal review of unknown product " + id);
+                }
+                manager.addReviews(entry, Collections.singletonList(review));
+                break;
+            default:
+                throw new IOException("Unknown journal record " + kind);
+        }
+    }
+
+    private Path segmentFile(long number) {
+        return directory.resolve(String.format("journal-%016d.log", number));
+    }
+
+    private Path snapshotFile(long number) {
+        return directory.resolve(String.format("snapshot-%016d.bin", number));
+    }
+
+    private static TreeMap<Long, Path> list(Path directory, String prefix, String suffix) throws IOException {
+        TreeMap<Long, Path> files = new TreeMap<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, prefix + "*" + suffix)) {
+            for (Path file : stream) {
+                String name = file.getFileName().toString();
+                try {
+                    files.put(Long.parseLong(name.substring(prefix.length(), name.length() - suffix.length())), file);
+                } catch (NumberFormatException e) {
+                    logger.log(Level.WARNING, "Ignoring " + file);
+                }
+            }
+        }
+        return files;
+    }
+}
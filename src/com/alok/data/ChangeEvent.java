@@ -0,0 +1,115 @@
+package com.alok.data;
+
+import java.util.List;
+
+/**
+ * Change of a {@link ProductManager} catalog, numbered by a sequence that increases by one per change.
+ * The changes of one product are numbered in the order they were made.
+ */
+public final class ChangeEvent {
+
+    /**
+     * The kind of change.
+     */
+    public enum Type {
+        /**
+         * A product was added.
+         */
+        CREATED,
+        /**
+         * Reviews were added and the rating of the product did not change.
+         */
+        REVIEWED,
+        /**
+         * Reviews were added and changed the rating of the product.
+         */
+        RERATED
+    }
+
+    private final long sequence;
+    private final Type type;
+    private final Product product;
+    private final Rating oldRating;
+    private final List<Review> reviews;
+
+    /**
+     * Instantiates a new Change event.
+     *
+     * @param sequence  the sequence
+     * @param type      the type
+     * @param product   the product after the change
+     * @param oldRating the rating before the change, null for a created product
+     * @param reviews   the reviews added by the change
+     */
+    ChangeEvent(long sequence, Type type, Product product, Rating oldRating, List<Review> reviews) {
+        this.sequence = sequence;
+        this.type = type;
+        this.product = product;
+        this.oldRating = oldRating;
+        this.reviews = reviews;
+    }
+
+    /**
+     * Gets sequence.
+     *
+     * @return the sequence number of the change
+     */
+    public long getSequence() {
+        return sequence;
+    }
+
+    /**
+     * Gets type.
+     *
+     * @return the type
+     */
+    public Type getType() {
+        return type;
+    }
+
+    /**
+     * Gets product.
+     *
+     * @return the product after the change
+     */
+    public Product getProduct() {
+        return product;
+    }
+
+    /**
+     * Gets old rating.
+     *
+     * @return the rating before the change, null for a created product
+     */
+    public Rating getOldRating() {
+        return oldRating;
+    }
+
+    /**
+     * Gets new rating.
+     *
+     * @return the rating after the change
+     */
+    public Rating getNewRating() {
+        return product.getRating();
+    }
+
+    /**
+     * Gets reviews.
+     *
+     * @return the reviews added by the change, empty for a created product
+     */
+    public List<Review> getReviews() {
+        return reviews;
+    }
+
+    /**
+     * To string string.
+     *
+     * @return the string
+     */
+    @Override
+    public String toString() {
+        return sequence + " " + type + " " + product.getId() + " " + oldRating + " -> " + getNewRating();
+    }
+}
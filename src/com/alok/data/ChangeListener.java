@@ -0,0 +1,28 @@
+package com.alok.data;
+
+import java.util.List;
+
+/**
+ * Receives the changes of a catalog, in sequence order, from a {@link ChangeSubscription}.
+ */
+@FunctionalInterface
+public interface ChangeListener {
+
+    /**
+     * Receives the next batch of changes. The next batch is only delivered once this returns; when it throws,
+     * the subscription stops and {@link ChangeSubscription#getPosition()} is the first change of the batch.
+     *
+     * @param events the changes, in sequence order, in an unmodifiable list the listener may keep
+     */
+    void onChanges(List<ChangeEvent> events);
+
+    /**
+     * Learns that changes were overwritten before they could be delivered, because the subscriber fell more than
+     * the buffer capacity behind or resumed from a sequence no longer buffered. Does nothing by default.
+     *
+     * @param from the first lost sequence
+     * @param to   the sequence delivery resumes from, exclusive end of the lost range
+     */
+    default void onGap(long from, long to) {
+    }
+}
@@ -0,0 +1,105 @@
+package com.alok.data;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Lock free ring buffer of the last changes of a catalog.
+ * <p>
+ * A writer claims the next sequence with one atomic increment and stores its event in the slot of that sequence,
+ * overwriting the event one capacity older. Writers never wait for subscribers: a subscriber that falls more
+ * than the capacity behind finds newer events in its slots and skips the lost range. Parked subscribers are
+ * woken by the writer that publishes the event they wait for.
+ */
+final class ChangeStream {
+
+    private final AtomicReferenceArray<ChangeEvent> ring;
+    private final int mask;
+    private final AtomicLong next = new AtomicLong();
+    private final List<ChangeSubscription> subscriptions = new CopyOnWriteArrayList<>();
+
+    /**
+     * Instantiates a new Change stream.
+     *
+     * @param capacity the number of events kept, a power of two
+     */
+    ChangeStream(int capacity) {
+        if (Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("Capacity must be a power of two");
+        }
+        ring = new AtomicReferenceArray<>(capacity);
+        mask = capacity - 1;
+    }
+
+    /**
+     * Publishes a change. Must be called while the product is locked, so that its changes are numbered in order.
+     *
+     * @param type      the type
+     * @param product   the product after the change
+     * @param oldRating the rating before the change
+     * @param reviews   the reviews added by the change
+     */
+    void publish(ChangeEvent.Type type, Product product, Rating oldRating, List<Review> reviews) {
+        long sequence = next.getAndIncrement();
+        ring.set((int) sequence & mask, new ChangeEvent(sequence, type, product, oldRating,
+                reviews.isEmpty() ? Collections.emptyList() : Collections.unmodifiableList(reviews)));
+        for (ChangeSubscription subscription : subscriptions) {
+            subscription.wake();
+        }
+    }
+
+    /**
+     * Gets next sequence.
+     *
+     * @return the sequence the next change will get
+     */
+    long getNextSequence() {
+        return next.get();
+    }
+
+    /**
+     * Gets the oldest sequence still buffered, or about to be.
+     *
+     * @return the sequence
+     */
+    long getOldestSequence() {
+        return Math.max(0, next.get() - ring.length());
+    }
+
+    /**
+     * Gets the event of a sequence.
+     *
+     * @param sequence the sequence
+     * @return the event, an older one when it is not published yet or a newer one when it was overwritten
+     */
+    ChangeEvent get(long sequence) {
+        return ring.get((int) sequence & mask);
+    }
+
+    /**
+     * Subscribe change subscription.
+     *
+     * @param from      the first sequence to deliver
+     * @param batchSize the maximum number of changes delivered at once
+     * @param listener  the listener
+     * @return the running subscription
+     */
+    ChangeSubscription subscribe(long from, int batchSize, ChangeListener listener) {
+        ChangeSubscription subscription = new ChangeSubscription(this, from, batchSize, listener);
+        subscriptions.add(subscription);
+        subscription.start();
+        return subscription;
+    }
+
+    /**
+     * Stops waking a closed subscription.
+     *
+     * @param subscription the subscription
+     */
+    void remove(ChangeSubscription subscription) {
+        subscriptions.remove(subscription);
+    }
+}
@@ -0,0 +1,156 @@
+package com.alok.data;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Delivery of the changes of a catalog to one {@link ChangeListener}, on a thread of its own, in batches of
+ * consecutive changes. Each subscription reads the change buffer at its own pace, so a slow listener delays
+ * only itself; it is told of the changes it missed when it falls more than the buffer capacity behind.
+ * <p>
+ * A subscription can be resumed, from {@link #getPosition()}, by a new one.
+ */
+public final class ChangeSubscription implements Closeable {
+
+    private static final Logger logger = Logger.getLogger(ChangeSubscription.class.getName());
+    private static final AtomicInteger threads = new AtomicInteger();
+    private static final long MAX_PARK = TimeUnit.MILLISECONDS.toNanos(10);
+
+    private final ChangeStream stream;
+    private final int batchSize;
+    private final ChangeListener listener;
+    private final Thread thread;
+    private volatile long position;
+    private volatile boolean parked;
+    private volatile boolean closed;
+
+    /**
+     * Instantiates a new Change subscription.
+     *
+     * @param stream    the stream
+     * @param from      the first sequence to deliver
+     * @param batchSize the maximum number of changes delivered at once
+     * @param listener  the listener
+     */
+    ChangeSubscription(ChangeStream stream, long from, int batchSize, ChangeListener listener) {
+        if (from < 0 || batchSize < 1) {
+            throw new IllegalArgumentException("Invalid subscription");
+        }
+        this.stream = stream;
+        this.position = from;
+        this.batchSize = batchSize;
+        this.listener = listener;
+        this.thread = new Thread(this::run, "catalog-changes-" + threads.getAndIncrement());
+        thread.setDaemon(true);
+    }
+
+    /**
+     * Gets position.
+     *
+     * @return the sequence of the next change to deliver
+     */
+    public long getPosition() {
+        return position;
+    }
+
+    /**
+     * Is closed boolean.
+     *
+     * @return whether delivery stopped, because of {@link #close()} or a failing listener
+     */
+    public boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * Stops delivery and waits for the batch being delivered.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        stream.remove(this);
+        LockSupport.unpark(thread);
+        if (Thread.currentThread() != thread) {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Starts delivery.
+     */
+    void start() {
+        thread.start();
+    }
+
+    /**
+     * Wakes the delivery thread when it waits for changes.
+     */
+    void wake() {
+        if (parked) {
+            LockSupport.unpark(thread);
+        }
+    }
+
+    private void run() {
+        List<ChangeEvent> batch = new ArrayList<>(Math.min(batchSize, 1024));
+        long next = position;
+        while (!closed) {
+            long oldest = stream.getOldestSequence();
+            if (next < oldest) {
+                if (!deliver(() -> listener.onGap(position, oldest))) {
+                    return;
+                }
+                next = oldest;
+                position = next;
+            }
+            while (batch.size() < batchSize) {
+                ChangeEvent event = stream.get(next);
+                if (event == null || event.getSequence() != next) {
+                    // not published yet, or overwritten, which the next round reports as a gap
+                    break;
+                }
+                batch.add(event);
+                next++;
+            }
+            if (batch.isEmpty()) {
+                parked = true;
+                ChangeEvent event = stream.get(next);
+                if (!closed && (event == null || event.getSequence() < next)) {
+                    LockSupport.parkNanos(this, MAX_PARK);
+                }
+                parked = false;
+                continue;
+            }
+            // the listener may keep the batch, so it is handed over and a new one is filled
+            List<ChangeEvent> events = Collections.unmodifiableList(batch);
+            if (!deliver(() -> listener.onChanges(events))) {
+                return;
+            }
+            position = next;
+            batch = new ArrayList<>(Math.min(batchSize, 1024));
+        }
+    }
+
+    private boolean deliver(Runnable call) {
+        try {
+            call.run();
+            return true;
+        } catch (RuntimeException e) {
+            logger.log(Level.WARNING, "Change listener failed, stopping at " + position, e);
+            closed = true;
+            stream.remove(this);
+            return false;
+        }
+    }
+}
@@ -0,0 +1,283 @@
+package com.alok.data;
+
+import com.alok.utils.IntIntHashMap;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * Product catalog stored column by column in parallel primitive arrays instead of one object per product:
+ * the id as an int, the price as a long of cents, the rating ordinal as a byte, the best before date as an
+ * int epoch day and the product type as a byte tag. Re-rating a product rewrites one byte, no object is
+ * created, and {@link Product} views are only built when a product is handed out.
+ * Filters and the discount aggregation run directly over the columns.
+ * <p>
+ * Prices must have at most two decimal places. The catalog is not thread safe.
+ * <p>
+ * This is a catalog API of its own, not a storage backend of {@link ProductManager}: it keeps no reviews,
+ * journal or indexes. {@link #copyOf(ProductManager)} loads it from a manager for column scans.
+ */
+public class ColumnarCatalog {
+
+    private static final int PRICE_SCALE = 2;
+    private static final byte DRINK = 1;
+    private static final byte FOOD = 2;
+    private static final Rating[] RATINGS = Rating.values();
+
+    private int size;
+    private int[] ids;
+    private long[] prices;
+    private byte[] ratings;
+    private int[] bestBefore;
+    private byte[] types;
+    private String[] names;
+
+    private final IntIntHashMap rowsById;
+
+    /**
+     * Instantiates a new empty Columnar catalog.
+     */
+    public ColumnarCatalog() {
+        this(16);
+    }
+
+    /**
+     * Instantiates a new empty Columnar catalog.
+     *
+     * @param capacity the expected number of products
+     */
+    public ColumnarCatalog(int capacity) {
+        int rows = Math.max(capacity, 16);
+        ids = new int[rows];
+        prices = new long[rows];
+        ratings = new byte[rows];
+        bestBefore = new int[rows];
+        types = new byte[rows];
+        names = new String[rows];
+        rowsById = new IntIntHashMap(rows);
+    }
+
+    /**
+     * Copies the products of a manager, with their current ratings.
+     *
+     * @param manager the manager
+     * @return the catalog
+     */
+    public static ColumnarCatalog copyOf(ProductManager manager) {
+        ColumnarCatalog catalog = new ColumnarCatalog();
+        manager.forEachEntry(entry -> catalog.add(entry.getProduct()));
+        return catalog;
+    }
+
+    /**
+     * Create product product.
+     *
+     * @param id         the id
+     * @param name       the name
+     * @param price      the price
+     * @param rating     the rating
+     * @param bestBefore the best before
+     * @return the product
+     */
+    public Product createProduct(int id, String name, BigDecimal price, Rating rating, LocalDate bestBefore) {
+        return add(new Food(id, name, price, rating, bestBefore));
+    }
+
+    /**
+     * Create product product.
+     *
+     * @param id     the id
+     * @param name   the name
+     * @param price  the price
+     * @param rating the rating
+     * @return the product
+     */
+    public Product createProduct(int id, String name, BigDecimal price, Rating rating) {
+        return add(new Drink(id, name, price, rating));
+    }
+
+    /**
+     * Adds a product unless a product with the same id is already in the catalog.
+     *
+     * @param product the product
+     * @return the product
+     */
+    public Product add(Product product) {
+        if (row(product.getId()) >= 0) {
+            return product;
+        }
+        long cents;
+        try {
+            cents = product.getPrice().setScale(PRICE_SCALE).unscaledValue().longValueExact();
+        } catch (ArithmeticException e) {
+            throw new IllegalArgumentException("Price " + product.getPrice() + " does not fit in cents", e);
+        }
+        if (size == ids.length) {
+            grow();
+        }
+        int row = size++;
+        ids[row] = product.getId();
+        prices[row] = cents;
+        ratings[row] = (byte) product.getRating().ordinal();
+        names[row] = product.getName();
+        if (product instanceof Food) {
+            types[row] = FOOD;
+            bestBefore[row] = Math.toIntExact(product.getBestBefore().toEpochDay());
+        } else {
+            types[row] = DRINK;
+        }
+        rowsById.put(product.getId(), row);
+        return product;
+    }
+
+    /**
+     * Find product product.
+     *
+     * @param id the id
+     * @return a view of the product
+     * @throws ProductManagerException the product manager exception
+     */
+    public Product findProduct(int id) throws ProductManagerException {
+        return view(findRow(id));
+    }
+
+    /**
+     * Re-rates a product in place.
+     *
+     * @param id     the id
+     * @param rating the new rating
+     * @return a view of the re-rated product
+     * @throws ProductManagerException the product manager exception
+     */
+    public Product applyRating(int id, Rating rating) throws ProductManagerException {
+        int row = findRow(id);
+        ratings[row] = (byte) rating.ordinal();
+        return view(row);
+    }
+
+    /**
+     * Size int.
+     *
+     * @return the number of products
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Streams views of all products, in insertion order.
+     *
+     * @return the stream
+     */
+    public Stream<Product> products() {
+        return IntStream.range(0, size).mapToObj(this::view);
+    }
+
+    /**
+     * Streams views of the products with a price in a range, scanning only the price column.
+     *
+     * @param min the lowest price, inclusive, or null
+     * @param max the highest price, exclusive, or null
+     * @return the stream
+     */
+    public Stream<Product> findByPrice(BigDecimal min, BigDecimal max) {
+        long low = min == null ? Long.MIN_VALUE : ceilingCents(min);
+        long high = max == null ? Long.MAX_VALUE : ceilingCents(max);
+        return IntStream.range(0, size)
+                .filter(row -> prices[row] >= low && prices[row] < high)
+                .mapToObj(this::view);
+    }
+
+    /**
+     * Streams views of the products with a rating, scanning only the rating column.
+     *
+     * @param rating the rating
+     * @return the stream
+     */
+    public Stream<Product> findByRating(Rating rating) {
+        byte ordinal = (byte) rating.ordinal();
+        return IntStream.range(0, size)
+                .filter(row -> ratings[row] == ordinal)
+                .mapToObj(this::view);
+    }
+
+    /**
+     * Sums the discounts of all products per rating at the given time, without creating any product.
+     * The result holds every rating present in the catalog, even when its discount is zero, like
+     * {@link ProductManager#getDiscount()}.
+     *
+     * @param now the time the discounts are evaluated at
+     * @return the discount totals
+     */
+    public Map<Rating, BigDecimal> getDiscount(LocalDateTime now) {
+        long[] totals = new long[RATINGS.length];
+        boolean[] present = new boolean[RATINGS.length];
+        int today = Math.toIntExact(now.toLocalDate().toEpochDay());
+        boolean happyHour = Drink.isHappyHour(now.toLocalTime());
+        for (int row = 0; row < size; row++) {
+            int rating = ratings[row];
+            present[rating] = true;
+            if (types[row] == FOOD ? bestBefore[row] == today : happyHour) {
+                totals[rating] += discountCents(prices[row]);
+            }
+        }
+        Map<Rating, BigDecimal> result = new EnumMap<>(Rating.class);
+        for (Rating rating : RATINGS) {
+            if (present[rating.ordinal()]) {
+                result.put(rating, BigDecimal.valueOf(totals[rating.ordinal()], PRICE_SCALE));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Computes {@code price * DISCOUNT_RATE} rounded half up to cents, as {@link Product#getDiscount()} does.
+     *
+     * @param cents the price in cents
+     * @return the discount in cents
+     */
+    static long discountCents(long cents) {
+        return Product.discountCents(cents, PRICE_SCALE);
+    }
+
+    private static long ceilingCents(BigDecimal amount) {
+        return amount.setScale(PRICE_SCALE, RoundingMode.CEILING).unscaledValue().longValueExact();
+    }
+
+    private Product view(int row) {
+        BigDecimal price = BigDecimal.valueOf(prices[row], PRICE_SCALE);
+        Rating rating = RATINGS[ratings[row]];
+        return types[row] == FOOD
+                ? new Food(ids[row], names[row], price, rating, LocalDate.ofEpochDay(bestBefore[row]))
+                : new Drink(ids[row], names[row], price, rating);
+    }
+
+    private int findRow(int id) throws ProductManagerException {
+        int row = row(id);
+        if (row < 0) {
+            throw new ProductManagerException("Product with given id: " + id + " not found.");
+        }
+        return row;
+    }
+
+    private int row(int id) {
+        return rowsById.get(id, -1);
+    }
+
+    private void grow() {
+        int capacity = ids.length * 2;
+        ids = Arrays.copyOf(ids, capacity);
+        prices = Arrays.copyOf(prices, capacity);
+        ratings = Arrays.copyOf(ratings, capacity);
+        bestBefore = Arrays.copyOf(bestBefore, capacity);
+        types = Arrays.copyOf(types, capacity);
+        names = Arrays.copyOf(names, capacity);
+    }
+}
@@ -0,0 +1,373 @@
+package com.alok.data;
+
+import java.math.BigDecimal;
+import java.nio.CharBuffer;
+import java.text.ParseException;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+
+/**
+ * Hand written parser for the product and review data lines, whose formats it defines:
+ * <pre>
+ * type, id, name, price, rating, bestBefore
+ * id, rating, comments
+ * </pre>
+ * Fields are split exactly the way {@link java.text.MessageFormat#parse(String)} splits them: every
+ * field but the last ends at the first following {@code ", "}, and the last field takes the rest of the
+ * line. Numbers are read straight from the characters, the price keeps the exact decimal value written in
+ * the line instead of going through a {@code double}. A parser keeps the fields of the last parsed line,
+ * so one instance can be reused for a whole file without allocating per field; it is not thread safe.
+ */
+final class DataLineParser {
+
+    /**
+     * Type code of drink lines.
+     */
+    static final char DRINK = 'D';
+    /**
+     * Type code of food lines.
+     */
+    static final char FOOD = 'F';
+
+    private static final String SEPARATOR = ", ";
+    private static final long MAX_UNSCALED = Long.MAX_VALUE / 10;
+
+    private final int[] bounds = new int[12];
+
+    private char type;
+    private int id;
+    private String name;
+    private long priceUnscaled;
+    private int priceScale;
+    private BigDecimal price;
+    private Rating rating;
+    private LocalDate bestBefore;
+    private String comments;
+    private String failure;
+
+    /**
+     * Parses a product line.
+     *
+     * @param text the line
+     * @throws ParseException when the line does not have the product layout, or a field is invalid;
+     *                        the error offset points at the start of the offending field
+     */
+    void parseProduct(CharSequence text) throws ParseException {
+        split(text, 6, "product");
+        char code = bounds[1] - bounds[0] == 1 ? text.charAt(bounds[0]) : 0;
+        type = code == DRINK || code == FOOD ? code : 0;
+        id = parseInt(text, 1, "id");
+        name = stringField(text, 2);
+        parsePrice(text, 3);
+        rating = Rateable.convert(parseInt(text, 4, "rating"));
+        bestBefore = type == FOOD ? parseDate(text, 5) : null;
+        comments = null;
+    }
+
+    /**
+     * Parses a product line held in a character array.
+     *
+     * @param chars  the characters
+     * @param offset the offset of the line
+     * @param length the length of the line
+     * @throws ParseException when the line is invalid
+     */
+    void parseProduct(char[] chars, int offset, int length) throws ParseException {
+        parseProduct(CharBuffer.wrap(chars, offset, length).slice());
+    }
+
+    /**
+     * Parses a review line.
+     *
+     * @param text the line
+     * @throws ParseException when the line does not have the review layout, or a field is invalid;
+     *                        the error offset points at the start of the offending field
+     */
+    void parseReview(CharSequence text) throws ParseException {
+        split(text, 3, "review");
+        id = parseInt(text, 0, "id");
+        rating = Rateable.convert(parseInt(text, 1, "rating"));
+        comments = stringField(text, 2);
+        type = 0;
+        name = null;
+        price = null;
+        bestBefore = null;
+    }
+
+    /**
+     * Parses a review line held in a character array.
+     *
+     * @param chars  the characters
+     * @param offset the offset of the line
+     * @param length the length of the line
+     * @throws ParseException when the line is invalid
+     */
+    void parseReview(char[] chars, int offset, int length) throws ParseException {
+        parseReview(CharBuffer.wrap(chars, offset, length).slice());
+    }
+
+    /**
+     * Gets the cause of the last failed parse.
+     *
+     * @return the name of the invalid field, or {@code layout} when the line did not have the expected fields
+     */
+    String getFailure() {
+        return failure;
+    }
+
+    /**
+     * Gets the type code of the last product line.
+     *
+     * @return {@link #DRINK}, {@link #FOOD}, or 0 for an unknown type
+     */
+    char getType() {
+        return type;
+    }
+
+    /**
+     * Gets id.
+     *
+     * @return the id
+     */
+    int getId() {
+        return id;
+    }
+
+    /**
+     * Gets name.
+     *
+     * @return the name
+     */
+    String getName() {
+        return name;
+    }
+
+    /**
+     * Gets price.
+     *
+     * @return the exact price written in the line
+     */
+    BigDecimal getPrice() {
+        if (price == null) {
+            price = BigDecimal.valueOf(priceUnscaled, priceScale);
+        }
+        return price;
+    }
+
+    /**
+     * Gets rating.
+     *
+     * @return the rating
+     */
+    Rating getRating() {
+        return rating;
+    }
+
+    /**
+     * Gets best before.
+     *
+     * @return the best before date of a food line, null otherwise
+     */
+    LocalDate getBestBefore() {
+        return bestBefore;
+    }
+
+    /**
+     * Gets comments.
+     *
+     * @return the comments
+     */
+    String getComments() {
+        return comments;
+    }
+
+    private void split(CharSequence text, int fields, String layout) throws ParseException {
+        int start = 0;
+        int length = text.length();
+        for (int i = 0; i < fields - 1; i++) {
+            int end = indexOfSeparator(text, start);
+            if (end < 0) {
+                failure = "layout";
+                throw new ParseException("Not a " + layout + " line, expected " + fields + " fields but found " + (i + 1), start);
+            }
+            bounds[2 * i] = start;
+            bounds[2 * i + 1] = end;
+            start = end + SEPARATOR.length();
+        }
+        bounds[2 * (fields - 1)] = start;
+        bounds[2 * (fields - 1) + 1] = length;
+    }
+
+    private static int indexOfSeparator(CharSequence text, int from) {
+        for (int i = from, last = text.length() - SEPARATOR.length(); i <= last; i++) {
+            if (text.charAt(i) == ',' && text.charAt(i + 1) == ' ') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private CharSequence field(CharSequence text, int index) {
+        return text.subSequence(bounds[2 * index], bounds[2 * index + 1]);
+    }
+
+    private String stringField(CharSequence text, int index) {
+        String value = field(text, index).toString();
+        // MessageFormat leaves an argument unset when the text is its own placeholder
+        return isPlaceholder(text, index) ? null : value;
+    }
+
+    private boolean isPlaceholder(CharSequence text, int index) {
+        int start = bounds[2 * index];
+        int end = bounds[2 * index + 1];
+        return end - start == 3 && text.charAt(start) == '{' && text.charAt(start + 1) == '0' + index && text.charAt(end - 1) == '}';
+    }
+
+    private int parseInt(CharSequence text, int index, String fieldName) throws ParseException {
+        int start = bounds[2 * index];
+        int end = bounds[2 * index + 1];
+        int pos = start;
+        boolean negative = false;
+        if (pos < end && (text.charAt(pos) == '-' || text.charAt(pos) == '+')) {
+            negative = text.charAt(pos++) == '-';
+        }
+        if (pos == end || isPlaceholder(text, index)) {
+            throw fieldError(text, index, fieldName);
+        }
+        // accumulate negatively, as Integer.parseInt does, so that MIN_VALUE fits
+        long limit = negative ? Integer.MIN_VALUE : -Integer.MAX_VALUE;
+        long result = 0;
+        while (pos < end) {
+            int digit = Character.digit(text.charAt(pos++), 10);
+            if (digit < 0) {
+                throw fieldError(text, index, fieldName);
+            }
+            result = result * 10 - digit;
+            if (result < limit) {
+                throw fieldError(text, index, fieldName);
+            }
+        }
+        return (int) (negative ? result : -result);
+    }
+
+    private void parsePrice(CharSequence text, int index) throws ParseException {
+        price = null;
+        int start = bounds[2 * index];
+        int end = bounds[2 * index + 1];
+        // Double.parseDouble ignores surrounding white space and a trailing type suffix
+        while (start < end && text.charAt(start) <= ' ') {
+            start++;
+        }
+        while (end > start && text.charAt(end - 1) <= ' ') {
+            end--;
+        }
+        if (end > start && "fFdD".indexOf(text.charAt(end - 1)) >= 0) {
+            end--;
+        }
+        int pos = start;
+        boolean negative = false;
+        if (pos < end && (text.charAt(pos) == '-' || text.charAt(pos) == '+')) {
+            negative = text.charAt(pos++) == '-';
+        }
+        long unscaled = 0;
+        int scale = 0;
+        int digits = 0;
+        boolean fraction = false;
+        for (; pos < end; pos++) {
+            char c = text.charAt(pos);
+            if (c >= '0' && c <= '9') {
+                if (unscaled >= MAX_UNSCALED) {
+                    parseSlowPrice(text, index);
+                    return;
+                }
+                unscaled = unscaled * 10 + (c - '0');
+                digits++;
+                if (fraction) {
+                    scale++;
+                }
+            } else if (c == '.' && !fraction) {
+                fraction = true;
+            } else {
+                break;
+            }
+        }
+        if (digits == 0) {
+            parseSlowPrice(text, index);
+            return;
+        }
+        if (pos < end) {
+            char c = text.charAt(pos);
+            if (c != 'e' && c != 'E') {
+                parseSlowPrice(text, index);
+                return;
+            }
+            int exponent;
+            try {
+                exponent = Integer.parseInt(text, pos + 1, end, 10);
+            } catch (NumberFormatException e) {
+                throw fieldError(text, index, "price");
+            }
+            if (Math.abs(exponent) > 1000) {
+                parseSlowPrice(text, index);
+                return;
+            }
+            scale -= exponent;
+        }
+        priceUnscaled = negative ? -unscaled : unscaled;
+        priceScale = scale;
+    }
+
+    private void parseSlowPrice(CharSequence text, int index) throws ParseException {
+        // hexadecimal, very long or otherwise unusual literals, accepted exactly when Double.parseDouble accepts them
+        String value = field(text, index).toString();
+        try {
+            double approximate = Double.parseDouble(value);
+            if (Double.isNaN(approximate) || Double.isInfinite(approximate)) {
+                throw fieldError(text, index, "price");
+            }
+            try {
+                price = new BigDecimal(value.trim().replaceFirst("[fFdD]$", ""));
+            } catch (NumberFormatException e) {
+                price = BigDecimal.valueOf(approximate);
+            }
+        } catch (NumberFormatException e) {
+            throw fieldError(text, index, "price");
+        }
+    }
+
+    private LocalDate parseDate(CharSequence text, int index) throws ParseException {
+        int start = bounds[2 * index];
+        int end = bounds[2 * index + 1];
+        try {
+            if (end - start == 10 && text.charAt(start + 4) == '-' && text.charAt(start + 7) == '-') {
+                int year = digits(text, start, 4);
+                int month = digits(text, start + 5, 2);
+                int day = digits(text, start + 8, 2);
+                if (year >= 0 && month >= 0 && day >= 0) {
+                    return LocalDate.of(year, month, day);
+                }
+            }
+            // expanded years such as +10000-01-01
+            return LocalDate.parse(field(text, index));
+        } catch (DateTimeException e) {
+            throw fieldError(text, index, "best before date");
+        }
+    }
+
+    private static int digits(CharSequence text, int start, int count) {
+        int value = 0;
+        for (int i = start; i < start + count; i++) {
+            char c = text.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+
+    private ParseException fieldError(CharSequence text, int index, String fieldName) {
+        failure = fieldName;
+        return new ParseException("Invalid " + fieldName + " '" + field(text, index) + "' at offset " + bounds[2 * index], bounds[2 * index]);
+    }
+}
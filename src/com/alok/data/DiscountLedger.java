@@ -0,0 +1,156 @@
+package com.alok.data;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Running per-rating discount totals of a catalog, kept up to date as products are added and re-rated
+ * instead of being recomputed from every product.
+ * <p>
+ * Drinks are discounted together during the happy hour, so one total per rating covers all of them and the
+ * whole drink total switches on and off at the happy hour boundaries. Food is discounted on its best before
+ * day, so food is kept in a calendar of one bucket per day, each holding its products and its totals per
+ * rating; the food discounted on a day is that day's bucket. Once a day is over its food is never discounted
+ * again, so {@link #prune(LocalDate)} drops the buckets of past days and later food of those days is only
+ * counted per rating.
+ * <p>
+ * Totals are counted in cents with {@link LongAdder}s, so that concurrent updates do not contend on a lock.
+ * Updates of one product must be serialized by the caller.
+ */
+final class DiscountLedger {
+
+    private static final Rating[] RATINGS = Rating.values();
+
+    private final LongAdder[] counts = adders();
+    private final LongAdder[] drinkCents = adders();
+    private final Map<LocalDate, Day> calendar = new ConcurrentHashMap<>();
+    private volatile LocalDate firstDay = LocalDate.MIN;
+
+    /**
+     * Computes the discount of a product while it is on offer, in cents.
+     *
+     * @param product the product
+     * @return the discount in cents
+     * @throws IllegalArgumentException when the discount does not fit in a long
+     */
+    static long discountCents(Product product) {
+        try {
+            return product.getDiscountCents();
+        } catch (ArithmeticException e) {
+            throw new IllegalArgumentException("Price " + product.getPrice() + " is out of range", e);
+        }
+    }
+
+    /**
+     * Records a new product.
+     *
+     * @param product the product
+     * @param cents   the discount of the product in cents
+     */
+    void add(Product product, long cents) {
+        int rating = product.getRating().ordinal();
+        counts[rating].increment();
+        if (product instanceof Food) {
+            if (product.getBestBefore().isBefore(firstDay)) {
+                return;
+            }
+            Day day = calendar.computeIfAbsent(product.getBestBefore(), date -> new Day());
+            day.products.add(product.getId());
+            day.cents[rating].add(cents);
+        } else {
+            drinkCents[rating].add(cents);
+        }
+    }
+
+    /**
+     * Moves the discount of a re-rated product to its new rating.
+     *
+     * @param product the re-rated product
+     * @param before  the previous rating
+     */
+    void move(Product product, Rating before) {
+        long cents = discountCents(product);
+        int from = before.ordinal();
+        int to = product.getRating().ordinal();
+        counts[from].decrement();
+        counts[to].increment();
+        LongAdder[] totals = drinkCents;
+        if (product instanceof Food) {
+            Day day = calendar.get(product.getBestBefore());
+            if (day == null) {
+                // the day is over and was pruned
+                return;
+            }
+            totals = day.cents;
+        }
+        totals[from].add(-cents);
+        totals[to].add(cents);
+    }
+
+    /**
+     * Drops the buckets of the days before the given day. Food of those days is no longer discounted by
+     * {@link #getTotals(LocalDateTime)} nor listed by {@link #getFood(LocalDate)}.
+     *
+     * @param today the first day to keep
+     */
+    void prune(LocalDate today) {
+        if (!today.isAfter(firstDay)) {
+            return;
+        }
+        firstDay = today;
+        calendar.keySet().removeIf(date -> date.isBefore(today));
+    }
+
+    /**
+     * Sums the discounts per rating at the given time. The result holds every rating of at least one product,
+     * even when its discount is zero. Food of a pruned day is not included.
+     *
+     * @param now the time the discounts are evaluated at
+     * @return the discount totals
+     */
+    Map<Rating, Money> getTotals(LocalDateTime now) {
+        boolean happyHour = Drink.isHappyHour(now.toLocalTime());
+        Day today = calendar.get(now.toLocalDate());
+        Map<Rating, Money> totals = new EnumMap<>(Rating.class);
+        for (Rating rating : RATINGS) {
+            int ordinal = rating.ordinal();
+            if (counts[ordinal].sum() > 0) {
+                long cents = (happyHour ? drinkCents[ordinal].sum() : 0) + (today == null ? 0 : today.cents[ordinal].sum());
+                totals.put(rating, Money.ofMinor(cents, 2));
+            }
+        }
+        return totals;
+    }
+
+    /**
+     * Gets the ids of the food with the given best before day.
+     *
+     * @param date the best before day
+     * @return the ids
+     */
+    List<Integer> getFood(LocalDate date) {
+        Day day = calendar.get(date);
+        return day == null ? Collections.emptyList() : new ArrayList<>(day.products);
+    }
+
+    private static LongAdder[] adders() {
+        LongAdder[] adders = new LongAdder[RATINGS.length];
+        for (int i = 0; i < adders.length; i++) {
+            adders[i] = new LongAdder();
+        }
+        return adders;
+    }
+
+    private static final class Day {
+        private final Set<Integer> products = ConcurrentHashMap.newKeySet();
+        private final LongAdder[] cents = adders();
+    }
+}
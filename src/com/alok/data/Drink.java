@@ -1,6 +1,7 @@
 package com.alok.data;
 
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
 import java.time.LocalTime;
 
 /**
@@ -10,6 +11,15 @@ import java.time.LocalTime;
  */
 public final class Drink extends Product {
 
+    /**
+     * The happy hour starts after this time.
+     */
+    static final LocalTime HAPPY_HOUR_START = LocalTime.of(17, 30);
+    /**
+     * The happy hour ends before this time.
+     */
+    static final LocalTime HAPPY_HOUR_END = LocalTime.of(18, 30);
+
     /**
      * Instantiates a new Drink.
      *
@@ -40,7 +50,27 @@ public final class Drink extends Product {
      */
     @Override
     public BigDecimal getDiscount() {
-        LocalTime now = LocalTime.now();
-        return (now.isAfter(LocalTime.of(17, 30)) && now.isBefore(LocalTime.of(18, 30))) ? super.getDiscount() : BigDecimal.ZERO;
+        return getDiscount(LocalDateTime.now());
+    }
+
+    /**
+     * Gets discount.
+     *
+     * @param now the time the discount is evaluated at
+     * @return the discount
+     */
+    @Override
+    public BigDecimal getDiscount(LocalDateTime now) {
+        return isHappyHour(now.toLocalTime()) ? getFullDiscount() : BigDecimal.ZERO;
+    }
+
+    /**
+     * Whether drinks are discounted at the given time.
+     *
+     * @param time the time
+     * @return the boolean
+     */
+    static boolean isHappyHour(LocalTime time) {
+        return time.isAfter(HAPPY_HOUR_START) && time.isBefore(HAPPY_HOUR_END);
     }
 }
@@ -2,6 +2,7 @@ package com.alok.data;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 
 /**
  * The type Food.
@@ -19,9 +20,13 @@ public final class Food extends Product {
      * @param price      the price
      * @param rating     the rating
      * @param bestBefore the best before
+     * @throws IllegalArgumentException when the best before date is missing
      */
     Food(int id, String name, BigDecimal price, Rating rating, LocalDate bestBefore) {
         super(id, name, price, rating);
+        if (bestBefore == null) {
+            throw new IllegalArgumentException("Food needs a best before date");
+        }
         this.bestBefore = bestBefore;
     }
 
@@ -52,7 +57,18 @@ public final class Food extends Product {
      */
     @Override
     public BigDecimal getDiscount() {
-        return (bestBefore.equals(LocalDate.now())) ? super.getDiscount() : BigDecimal.ZERO;
+        return getDiscount(LocalDateTime.now());
+    }
+
+    /**
+     * Gets discount.
+     *
+     * @param now the time the discount is evaluated at
+     * @return the discount
+     */
+    @Override
+    public BigDecimal getDiscount(LocalDateTime now) {
+        return (bestBefore.equals(now.toLocalDate())) ? getFullDiscount() : BigDecimal.ZERO;
     }
 
     /**
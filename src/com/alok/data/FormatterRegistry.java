@@ -0,0 +1,184 @@
+package com.alok.data;
+
+import java.io.IOException;
+import java.net.JarURLConnection;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Registry of the locales products can be rendered in, by language tag.
+ * <p>
+ * A {@link ResourceFormatter} is only built, loading its resource bundle and number and date formats, when its
+ * locale is first used or {@link #prewarm(Collection) prewarmed}. Besides the five built in locales, every
+ * {@code resources_<language>[_<COUNTRY>].properties} bundle found next to {@code resources.properties} on the
+ * class path is supported, under its language tag; the class path is scanned once, the first time an unknown tag
+ * is asked for or the supported tags are listed.
+ */
+final class FormatterRegistry {
+
+    private static final Logger logger = Logger.getLogger(FormatterRegistry.class.getName());
+
+    /**
+     * The lang tag used for unsupported lang tags.
+     */
+    static final String DEFAULT_TAG = "en-US";
+
+    private static final String BUNDLE_PATH = ResourceFormatter.BUNDLE.replace('.', '/');
+    private static final String BUNDLE_DIRECTORY = BUNDLE_PATH.substring(0, BUNDLE_PATH.lastIndexOf('/') + 1);
+    private static final String BUNDLE_PREFIX = BUNDLE_PATH.substring(BUNDLE_PATH.lastIndexOf('/') + 1) + "_";
+    private static final String BUNDLE_SUFFIX = ".properties";
+
+    private final Map<String, Locale> locales = new ConcurrentHashMap<>();
+    private final Map<String, ResourceFormatter> formatters = new ConcurrentHashMap<>();
+    private volatile boolean discovered;
+
+    /**
+     * Instantiates a new Formatter registry holding the built in locales.
+     */
+    FormatterRegistry() {
+        locales.put("en-US", Locale.US);
+        locales.put("fr-FR", Locale.FRANCE);
+        locales.put("ru-RU", new Locale("ru", "RU"));
+        locales.put("zh-TW", Locale.TRADITIONAL_CHINESE);
+        locales.put("hi-IN", new Locale("hi", "IN"));
+    }
+
+    /**
+     * Adds or replaces a locale.
+     *
+     * @param langTag the lang tag
+     * @param locale  the locale
+     */
+    void register(String langTag, Locale locale) {
+        locales.put(langTag, locale);
+        formatters.remove(langTag);
+    }
+
+    /**
+     * Gets the formatter of a lang tag, building it on first use.
+     *
+     * @param langTag the lang tag
+     * @return the formatter, the {@value #DEFAULT_TAG} one for an unsupported tag
+     */
+    ResourceFormatter get(String langTag) {
+        ResourceFormatter formatter = formatters.get(langTag);
+        if (formatter != null) {
+            return formatter;
+        }
+        Locale locale = locales.get(langTag);
+        if (locale == null) {
+            discover();
+            locale = locales.get(langTag);
+            if (locale == null) {
+                return get(DEFAULT_TAG);
+            }
+        }
+        Locale found = locale;
+        return formatters.computeIfAbsent(langTag, tag -> new ResourceFormatter(found));
+    }
+
+    /**
+     * Builds the formatters of lang tags ahead of their first use.
+     *
+     * @param langTags the lang tags
+     */
+    void prewarm(Collection<String> langTags) {
+        for (String langTag : langTags) {
+            get(langTag);
+        }
+    }
+
+    /**
+     * Gets supported.
+     *
+     * @return the supported lang tags
+     */
+    Set<String> getSupported() {
+        discover();
+        return Collections.unmodifiableSet(locales.keySet());
+    }
+
+    private void discover() {
+        if (discovered) {
+            return;
+        }
+        synchronized (this) {
+            if (discovered) {
+                return;
+            }
+            try {
+                for (String suffix : findBundles()) {
+                    String[] parts = suffix.split("_");
+                    Locale locale = parts.length > 1 ? new Locale(parts[0], parts[1]) : new Locale(parts[0]);
+                    if (!isCovered(locale)) {
+                        locales.putIfAbsent(locale.toLanguageTag(), locale);
+                    }
+                }
+            } catch (IOException | URISyntaxException e) {
+                logger.log(Level.WARNING, "Could not discover resource bundles", e);
+            }
+            discovered = true;
+        }
+    }
+
+    private boolean isCovered(Locale bundle) {
+        for (Locale locale : locales.values()) {
+            if (locale.getLanguage().equals(bundle.getLanguage())
+                    && (bundle.getCountry().isEmpty() || locale.getCountry().equals(bundle.getCountry()))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static List<String> findBundles() throws IOException, URISyntaxException {
+        List<String> suffixes = new ArrayList<>();
+        ClassLoader loader = FormatterRegistry.class.getClassLoader();
+        Enumeration<URL> directories = loader.getResources(BUNDLE_DIRECTORY);
+        while (directories.hasMoreElements()) {
+            URL directory = directories.nextElement();
+            if ("file".equals(directory.getProtocol())) {
+                try (DirectoryStream<Path> files = Files.newDirectoryStream(Paths.get(directory.toURI()), BUNDLE_PREFIX + "*" + BUNDLE_SUFFIX)) {
+                    for (Path file : files) {
+                        suffixes.add(suffix(file.getFileName().toString()));
+                    }
+                }
+            } else if ("jar".equals(directory.getProtocol())) {
+                URLConnection connection = directory.openConnection();
+                connection.setUseCaches(false);
+                try (JarFile jar = ((JarURLConnection) connection).getJarFile()) {
+                    for (Enumeration<JarEntry> entries = jar.entries(); entries.hasMoreElements(); ) {
+                        String name = entries.nextElement().getName();
+                        if (name.startsWith(BUNDLE_DIRECTORY + BUNDLE_PREFIX) && name.endsWith(BUNDLE_SUFFIX)
+                                && name.indexOf('/', BUNDLE_DIRECTORY.length()) < 0) {
+                            suffixes.add(suffix(name.substring(BUNDLE_DIRECTORY.length())));
+                        }
+                    }
+                }
+            }
+        }
+        return suffixes;
+    }
+
+    private static String suffix(String fileName) {
+        return fileName.substring(BUNDLE_PREFIX.length(), fileName.length() - BUNDLE_SUFFIX.length());
+    }
+}
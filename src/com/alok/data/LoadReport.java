@@ -0,0 +1,160 @@
+package com.alok.data;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Outcome of a bulk load: how many lines were read and applied, how long it took and which lines failed.
+ */
+public class LoadReport {
+    private final long lines;
+    private final long loaded;
+    private final long bytes;
+    private final Duration elapsed;
+    private final List<LineError> errors;
+
+    /**
+     * Instantiates a new Load report.
+     *
+     * @param lines   the number of non empty lines read
+     * @param loaded  the number of lines applied to the catalog
+     * @param bytes   the size of the input
+     * @param elapsed the elapsed time
+     * @param errors  the failed lines, by line number
+     */
+    LoadReport(long lines, long loaded, long bytes, Duration elapsed, List<LineError> errors) {
+        this.lines = lines;
+        this.loaded = loaded;
+        this.bytes = bytes;
+        this.elapsed = elapsed;
+        this.errors = Collections.unmodifiableList(errors);
+    }
+
+    /**
+     * Gets lines.
+     *
+     * @return the number of non empty lines read
+     */
+    public long getLines() {
+        return lines;
+    }
+
+    /**
+     * Gets loaded.
+     *
+     * @return the number of lines applied to the catalog
+     */
+    public long getLoaded() {
+        return loaded;
+    }
+
+    /**
+     * Gets bytes.
+     *
+     * @return the size of the input in bytes
+     */
+    public long getBytes() {
+        return bytes;
+    }
+
+    /**
+     * Gets elapsed.
+     *
+     * @return the elapsed time
+     */
+    public Duration getElapsed() {
+        return elapsed;
+    }
+
+    /**
+     * Gets errors.
+     *
+     * @return the failed lines, ordered by line number
+     */
+    public List<LineError> getErrors() {
+        return errors;
+    }
+
+    /**
+     * Gets the throughput in lines.
+     *
+     * @return the lines per second
+     */
+    public double getLinesPerSecond() {
+        return lines / seconds();
+    }
+
+    /**
+     * Gets the throughput in bytes.
+     *
+     * @return the megabytes per second
+     */
+    public double getMegabytesPerSecond() {
+        return bytes / (1024.0 * 1024.0) / seconds();
+    }
+
+    private double seconds() {
+        return Math.max(elapsed.toNanos(), 1) / 1e9;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d lines, %d loaded, %d errors in %d ms (%.0f lines/s, %.1f MB/s)",
+                lines, loaded, errors.size(), elapsed.toMillis(), getLinesPerSecond(), getMegabytesPerSecond());
+    }
+
+    /**
+     * A line that could not be loaded.
+     */
+    public static class LineError {
+        private final long lineNumber;
+        private final String line;
+        private final String message;
+
+        /**
+         * Instantiates a new Line error.
+         *
+         * @param lineNumber the line number, starting at 1
+         * @param line       the line
+         * @param message    the message
+         */
+        LineError(long lineNumber, String line, String message) {
+            this.lineNumber = lineNumber;
+            this.line = line;
+            this.message = message;
+        }
+
+        /**
+         * Gets line number.
+         *
+         * @return the line number, starting at 1
+         */
+        public long getLineNumber() {
+            return lineNumber;
+        }
+
+        /**
+         * Gets line.
+         *
+         * @return the line
+         */
+        public String getLine() {
+            return line;
+        }
+
+        /**
+         * Gets message.
+         *
+         * @return the message
+         */
+        public String getMessage() {
+            return message;
+        }
+
+        @Override
+        public String toString() {
+            return lineNumber + ": " + message + " [" + line + "]";
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.alok.data;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.function.Predicate;
+
+/**
+ * Shard held by a {@link ProductManager} of the same JVM.
+ */
+public class LocalShard implements ShardTransport {
+
+    private final ProductManager manager;
+
+    /**
+     * Instantiates a new Local shard.
+     *
+     * @param manager the manager, a concurrent one
+     */
+    public LocalShard(ProductManager manager) {
+        this.manager = manager;
+    }
+
+    /**
+     * Gets manager.
+     *
+     * @return the manager
+     */
+    public ProductManager getManager() {
+        return manager;
+    }
+
+    @Override
+    public Product addProduct(Product product) {
+        return manager.addProduct(product);
+    }
+
+    @Override
+    public Product findProduct(int id) throws ProductManagerException {
+        return manager.findProduct(id);
+    }
+
+    @Override
+    public Product reviewProduct(int id, Rating rating, String comments) {
+        return manager.reviewProduct(id, rating, comments);
+    }
+
+    @Override
+    public int writeProductReport(int id, String langTag, int offset, int limit, Appendable out) throws ProductManagerException, IOException {
+        return manager.writeProductReport(manager.findProduct(id), langTag, offset, limit, out);
+    }
+
+    @Override
+    public List<Product> selectProducts(Predicate<Product> filter, Comparator<Product> sorter, int limit) {
+        return manager.snapshot().findProducts(filter, sorter, 0, limit);
+    }
+
+    @Override
+    public List<Product> findProducts(ProductQuery query) {
+        return manager.findProducts(query);
+    }
+
+    @Override
+    public Map<Rating, Money> getDiscountTotals(LocalDateTime now) {
+        return manager.getDiscountTotals(now);
+    }
+
+    @Override
+    public long getProductCount() {
+        return manager.getMetrics().getProductCount();
+    }
+
+    @Override
+    public void exportProducts(BiConsumer<ProductSpec, List<Review>> action) {
+        manager.forEachEntry(entry -> action.accept(ProductSpec.of(entry.getProduct()), manager.getReviews(entry)));
+    }
+
+    @Override
+    public void importProduct(ProductSpec product, List<Review> reviews) {
+        manager.importProduct(product, reviews);
+    }
+}
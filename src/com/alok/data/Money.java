@@ -0,0 +1,166 @@
+package com.alok.data;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+
+/**
+ * Exact amount of money held as a long of minor units and a scale, the number of minor unit digits:
+ * {@code 1.99} is 199 at scale 2. Rescaling rounds {@code HALF_UP} exactly like
+ * {@link BigDecimal#setScale(int, java.math.RoundingMode)}, on longs, without allocating.
+ */
+public final class Money {
+
+    private static final int MAX_SCALE = 18;
+    private static final long[] POWERS_OF_TEN = new long[MAX_SCALE + 1];
+
+    static {
+        POWERS_OF_TEN[0] = 1;
+        for (int i = 1; i <= MAX_SCALE; i++) {
+            POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+        }
+    }
+
+    private final long minor;
+    private final int scale;
+
+    private Money(long minor, int scale) {
+        this.minor = minor;
+        this.scale = scale;
+    }
+
+    /**
+     * Creates an amount from minor units.
+     *
+     * @param minor the amount in minor units
+     * @param scale the number of minor unit digits, from 0 to 18
+     * @return the money
+     */
+    public static Money ofMinor(long minor, int scale) {
+        checkScale(scale);
+        return new Money(minor, scale);
+    }
+
+    /**
+     * Creates an amount from a decimal, keeping its scale.
+     *
+     * @param amount the amount
+     * @return the money
+     * @throws ArithmeticException when the amount has more than 18 decimals or does not fit in a long of minor units
+     */
+    public static Money of(BigDecimal amount) {
+        BigDecimal exact = amount.scale() < 0 ? amount.setScale(0) : amount;
+        if (exact.scale() > MAX_SCALE) {
+            throw new ArithmeticException("Too many decimals in " + amount);
+        }
+        BigInteger unscaled = exact.unscaledValue();
+        if (unscaled.bitLength() > 63) {
+            throw new ArithmeticException("Amount out of range " + amount);
+        }
+        return new Money(unscaled.longValue(), exact.scale());
+    }
+
+    /**
+     * Changes the scale of an amount in minor units, rounding half up.
+     *
+     * @param minor     the amount in minor units
+     * @param scale     the scale of the amount
+     * @param newScale  the scale of the result
+     * @return the amount in minor units of the new scale
+     * @throws ArithmeticException when the result does not fit in a long
+     */
+    public static long rescale(long minor, int scale, int newScale) {
+        if (scale < 0 || newScale < 0 || Math.abs(newScale - scale) > MAX_SCALE) {
+            throw new IllegalArgumentException("Cannot rescale from " + scale + " to " + newScale);
+        }
+        if (newScale >= scale) {
+            return Math.multiplyExact(minor, POWERS_OF_TEN[newScale - scale]);
+        }
+        long divisor = POWERS_OF_TEN[scale - newScale];
+        long quotient = minor / divisor;
+        long remainder = Math.abs(minor % divisor);
+        // half up rounds ties away from zero
+        if (remainder >= divisor - remainder) {
+            quotient += minor < 0 ? -1 : 1;
+        }
+        return quotient;
+    }
+
+    /**
+     * Gets minor units.
+     *
+     * @return the amount in minor units
+     */
+    public long getMinorUnits() {
+        return minor;
+    }
+
+    /**
+     * Gets scale.
+     *
+     * @return the number of minor unit digits
+     */
+    public int getScale() {
+        return scale;
+    }
+
+    /**
+     * Gets the amount in minor units of another scale, rounding half up.
+     *
+     * @param newScale the scale
+     * @return the amount in minor units
+     */
+    public long toMinor(int newScale) {
+        return rescale(minor, scale, newScale);
+    }
+
+    /**
+     * To big decimal big decimal.
+     *
+     * @return the amount as a decimal of the same scale
+     */
+    public BigDecimal toBigDecimal() {
+        return BigDecimal.valueOf(minor, scale);
+    }
+
+    /**
+     * Equals boolean, true for the same minor units at the same scale.
+     *
+     * @param o the o
+     * @return the boolean
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o instanceof Money) {
+            Money other = (Money) o;
+            return minor == other.minor && scale == other.scale;
+        }
+        return false;
+    }
+
+    /**
+     * Hash code int.
+     *
+     * @return the int
+     */
+    @Override
+    public int hashCode() {
+        return Long.hashCode(minor) * 31 + scale;
+    }
+
+    /**
+     * To string string.
+     *
+     * @return the amount as a plain decimal
+     */
+    @Override
+    public String toString() {
+        return toBigDecimal().toPlainString();
+    }
+
+    private static void checkScale(int scale) {
+        if (scale < 0 || scale > MAX_SCALE) {
+            throw new IllegalArgumentException("Scale " + scale + " out of range");
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package com.alok.data;
+
+/**
+ * The catalog operations measured by {@link CatalogMetrics}.
+ */
+public enum Operation {
+    /**
+     * Creating a product.
+     */
+    CREATE,
+    /**
+     * Finding a product by id.
+     */
+    FIND,
+    /**
+     * Reviewing a product.
+     */
+    REVIEW,
+    /**
+     * Parsing a product or review line.
+     */
+    PARSE,
+    /**
+     * Writing a product report or a product listing.
+     */
+    REPORT,
+    /**
+     * Computing the discount totals.
+     */
+    DISCOUNT
+}
@@ -0,0 +1,192 @@
+package com.alok.data;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Immutable map of products by id, as a hash array mapped trie of 32-way nodes. An update copies only the
+ * path from the root to the product, at most seven small nodes, and shares every other node with the previous
+ * version, so keeping an old version costs only the nodes changed since.
+ * <p>
+ * Ids are spread by a bijective hash, so two ids never share a full hash and leaves always hold one product.
+ */
+final class PersistentProductMap implements Iterable<Product> {
+
+    /**
+     * The empty map.
+     */
+    static final PersistentProductMap EMPTY = new PersistentProductMap(new Node(0, new Object[0]), 0, 0);
+
+    private static final int BITS = 5;
+    private static final int MASK = (1 << BITS) - 1;
+    private static final int MAX_DEPTH = (32 + BITS - 1) / BITS;
+
+    private final Node root;
+    private final int size;
+    private final long version;
+
+    private PersistentProductMap(Node root, int size, long version) {
+        this.root = root;
+        this.size = size;
+        this.version = version;
+    }
+
+    /**
+     * Gets a product.
+     *
+     * @param id the id
+     * @return the product, or null
+     */
+    Product get(int id) {
+        int hash = hash(id);
+        Node node = root;
+        for (int shift = 0; ; shift += BITS) {
+            int bit = 1 << ((hash >>> shift) & MASK);
+            if ((node.bitmap & bit) == 0) {
+                return null;
+            }
+            Object child = node.children[Integer.bitCount(node.bitmap & (bit - 1))];
+            if (child instanceof Node) {
+                node = (Node) child;
+            } else {
+                Product product = (Product) child;
+                return product.getId() == id ? product : null;
+            }
+        }
+    }
+
+    /**
+     * Adds or replaces a product.
+     *
+     * @param product the product
+     * @return the next version of the map
+     */
+    PersistentProductMap put(Product product) {
+        boolean added = get(product.getId()) == null;
+        return new PersistentProductMap(put(root, product, hash(product.getId()), 0), added ? size + 1 : size, version + 1);
+    }
+
+    /**
+     * Size int.
+     *
+     * @return the number of products
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Gets version.
+     *
+     * @return the number of updates that led to this version
+     */
+    long getVersion() {
+        return version;
+    }
+
+    /**
+     * Iterates over the products, in hash order.
+     *
+     * @return the iterator
+     */
+    @Override
+    public Iterator<Product> iterator() {
+        return new Walk(root);
+    }
+
+    private static Node put(Node node, Product product, int hash, int shift) {
+        int bit = 1 << ((hash >>> shift) & MASK);
+        int index = Integer.bitCount(node.bitmap & (bit - 1));
+        if ((node.bitmap & bit) == 0) {
+            Object[] children = new Object[node.children.length + 1];
+            System.arraycopy(node.children, 0, children, 0, index);
+            children[index] = product;
+            System.arraycopy(node.children, index, children, index + 1, node.children.length - index);
+            return new Node(node.bitmap | bit, children);
+        }
+        Object child = node.children[index];
+        Object replacement;
+        if (child instanceof Node) {
+            replacement = put((Node) child, product, hash, shift + BITS);
+        } else if (((Product) child).getId() == product.getId()) {
+            replacement = product;
+        } else {
+            Product other = (Product) child;
+            replacement = pair(other, hash(other.getId()), product, hash, shift + BITS);
+        }
+        Object[] children = node.children.clone();
+        children[index] = replacement;
+        return new Node(node.bitmap, children);
+    }
+
+    private static Node pair(Product a, int hashA, Product b, int hashB, int shift) {
+        int indexA = (hashA >>> shift) & MASK;
+        int indexB = (hashB >>> shift) & MASK;
+        if (indexA == indexB) {
+            return new Node(1 << indexA, new Object[]{pair(a, hashA, b, hashB, shift + BITS)});
+        }
+        return new Node((1 << indexA) | (1 << indexB), indexA < indexB ? new Object[]{a, b} : new Object[]{b, a});
+    }
+
+    private static int hash(int id) {
+        int h = id * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    private static final class Node {
+        private final int bitmap;
+        private final Object[] children;
+
+        private Node(int bitmap, Object[] children) {
+            this.bitmap = bitmap;
+            this.children = children;
+        }
+    }
+
+    private static final class Walk implements Iterator<Product> {
+        private final Node[] nodes = new Node[MAX_DEPTH + 1];
+        private final int[] positions = new int[MAX_DEPTH + 1];
+        private int depth;
+        private Product next;
+
+        private Walk(Node root) {
+            nodes[0] = root;
+            advance();
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        @Override
+        public Product next() {
+            if (next == null) {
+                throw new NoSuchElementException();
+            }
+            Product product = next;
+            advance();
+            return product;
+        }
+
+        private void advance() {
+            next = null;
+            while (depth >= 0) {
+                Node node = nodes[depth];
+                if (positions[depth] == node.children.length) {
+                    depth--;
+                    continue;
+                }
+                Object child = node.children[positions[depth]++];
+                if (child instanceof Node) {
+                    depth++;
+                    nodes[depth] = (Node) child;
+                    positions[depth] = 0;
+                } else {
+                    next = (Product) child;
+                    return;
+                }
+            }
+        }
+    }
+}
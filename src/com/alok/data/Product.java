@@ -2,6 +2,7 @@ package com.alok.data;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.Objects;
 
 import static com.alok.data.Rating.NOT_RATED;
@@ -18,9 +19,11 @@ public abstract class Product implements Rateable<Product> {
      * The constant DISCOUNT_RATE.
      */
     public static final BigDecimal DISCOUNT_RATE = BigDecimal.valueOf(0.1);
+    private static final long DISCOUNT_UNSCALED = DISCOUNT_RATE.unscaledValue().longValueExact();
     private final int id;
     private final String name;
     private final BigDecimal price;
+    private final Money money;
     private final Rating rating;
 
     /**
@@ -35,6 +38,7 @@ public abstract class Product implements Rateable<Product> {
         this.id = id;
         this.name = name;
         this.price = price;
+        this.money = toMoney(price);
         this.rating = rating;
     }
 
@@ -82,9 +86,80 @@ public abstract class Product implements Rateable<Product> {
      * @return the discount
      */
     public BigDecimal getDiscount() {
+        return getFullDiscount();
+    }
+
+    /**
+     * Gets the discount at the given time, so that many products can be evaluated against one clock reading.
+     *
+     * @param now the time the discount is evaluated at
+     * @return the discount
+     */
+    public BigDecimal getDiscount(LocalDateTime now) {
+        return getFullDiscount();
+    }
+
+    /**
+     * Gets the discount the product gets while it is on offer.
+     *
+     * @return the discount
+     */
+    final BigDecimal getFullDiscount() {
+        if (money != null) {
+            try {
+                return BigDecimal.valueOf(discountCents(money.getMinorUnits(), money.getScale()), 2);
+            } catch (ArithmeticException e) {
+                // the discount does not fit in cents, compute it with big decimals
+            }
+        }
         return price.multiply(DISCOUNT_RATE).setScale(2, HALF_UP);
     }
 
+    /**
+     * Gets the discount the product gets while it is on offer, in cents.
+     *
+     * @return the discount in cents
+     * @throws ArithmeticException when the discount does not fit in a long
+     */
+    final long getDiscountCents() {
+        return money != null
+                ? discountCents(money.getMinorUnits(), money.getScale())
+                : getFullDiscount().unscaledValue().longValueExact();
+    }
+
+    /**
+     * Gets the price as money, or null when it has too many digits for a long of minor units.
+     *
+     * @return the price
+     */
+    final Money getMoney() {
+        return money;
+    }
+
+    /**
+     * Computes {@code price * DISCOUNT_RATE} rounded half up to cents on longs: the product of the unscaled
+     * values has the sum of the scales, and is rescaled to cents.
+     *
+     * @param minor the price in minor units
+     * @param scale the scale of the price
+     * @return the discount in cents
+     * @throws ArithmeticException when the product does not fit in a long
+     */
+    static long discountCents(long minor, int scale) {
+        return Money.rescale(Math.multiplyExact(minor, DISCOUNT_UNSCALED), scale + DISCOUNT_RATE.scale(), 2);
+    }
+
+    private static Money toMoney(BigDecimal price) {
+        if (price == null) {
+            return null;
+        }
+        try {
+            return Money.of(price);
+        } catch (ArithmeticException e) {
+            return null;
+        }
+    }
+
     /**
      * Gets rating.
      *
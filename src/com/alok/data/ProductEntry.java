@@ -0,0 +1,160 @@
+package com.alok.data;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+
+/**
+ * Catalog slot of one product: the current rated version of the product together with its reviews,
+ * kept in a {@link ReviewStore}, and their running rating aggregate.
+ * The slot stays in the id index for the lifetime of the product, re-rating only swaps the product.
+ * Reviews and re-rating are serialized on the entry, so concurrent reviews of one product are never
+ * lost while reviews of different products run in parallel; the current product is readable without locking.
+ */
+final class ProductEntry {
+    private volatile Product product;
+    private final ReviewStore reviews = new ReviewStore();
+    private final RatingStats stats = new RatingStats();
+    private long journalSequence;
+    private boolean reviewsIndexed;
+
+    /**
+     * Instantiates a new Product entry.
+     *
+     * @param product the product
+     */
+    ProductEntry(Product product) {
+        this.product = product;
+    }
+
+    /**
+     * Gets product.
+     *
+     * @return the product
+     */
+    Product getProduct() {
+        return product;
+    }
+
+    /**
+     * Gets journal sequence.
+     *
+     * @return the sequence number of the latest journal record of the product, 0 when it was never journaled
+     */
+    synchronized long getJournalSequence() {
+        return journalSequence;
+    }
+
+    /**
+     * Sets journal sequence.
+     *
+     * @param journalSequence the sequence number of the latest journal record of the product
+     */
+    synchronized void setJournalSequence(long journalSequence) {
+        this.journalSequence = journalSequence;
+    }
+
+    /**
+     * Is reviews indexed boolean.
+     *
+     * @return whether new reviews of the product go to the review index
+     */
+    synchronized boolean isReviewsIndexed() {
+        return reviewsIndexed;
+    }
+
+    /**
+     * Marks the reviews of the product as indexed, so that new ones go to the review index.
+     */
+    synchronized void setReviewsIndexed() {
+        reviewsIndexed = true;
+    }
+
+    /**
+     * Adds several reviews and re-rates the product once for all of them.
+     *
+     * @param batch the reviews, in the order they were written
+     * @param spill the spill to evict old reviews to, or null
+     * @return the re-rated product
+     */
+    synchronized Product addReviews(List<Review> batch, ReviewSpill spill) {
+        for (Review review : batch) {
+            reviews.add(review, spill);
+            stats.add(review.getRating());
+        }
+        product = product.applyRating(stats.getRating());
+        return product;
+    }
+
+    /**
+     * Gets reviews.
+     *
+     * @param spill the spill holding the evicted reviews
+     * @return the reviews, best rated first
+     * @throws UncheckedIOException when evicted reviews cannot be read
+     */
+    List<Review> getReviews(ReviewSpill spill) {
+        return getReviews(0, Integer.MAX_VALUE, spill);
+    }
+
+    /**
+     * Gets a page of the reviews, best rated first and in the order they were added within a rating.
+     *
+     * @param offset the number of reviews to skip
+     * @param limit  the maximum number of reviews
+     * @param spill  the spill holding the evicted reviews
+     * @return the reviews
+     * @throws UncheckedIOException when evicted reviews cannot be read
+     */
+    synchronized List<Review> getReviews(int offset, int limit, ReviewSpill spill) {
+        try {
+            return reviews.getPage(offset, limit, spill);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Gets the number of reviews of every rating, to read the current reviews later with
+     * {@link #getReviews(int[], ReviewSpill)}.
+     *
+     * @return the counts, by rating ordinal
+     */
+    synchronized int[] getReviewCounts() {
+        return reviews.getCounts();
+    }
+
+    /**
+     * Gets the reviews the entry held when it had the given counts, best rated first.
+     *
+     * @param counts the counts from {@link #getReviewCounts()}
+     * @param spill  the spill holding the evicted reviews
+     * @return the reviews
+     * @throws UncheckedIOException when evicted reviews cannot be read
+     */
+    synchronized List<Review> getReviews(int[] counts, ReviewSpill spill) {
+        try {
+            return reviews.getReviews(counts, spill);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Gets review count.
+     *
+     * @return the number of reviews
+     */
+    synchronized int getReviewCount() {
+        return reviews.size();
+    }
+
+    /**
+     * Gets stats.
+     *
+     * @return a copy of the running rating aggregate
+     */
+    synchronized RatingStats getStats() {
+        return stats.copy();
+    }
+}
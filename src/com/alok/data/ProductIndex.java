@@ -0,0 +1,167 @@
+package com.alok.data;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Secondary index of the catalog: one bucket per rating, each bucket sorted by price and id.
+ * A listing query walks only the buckets in its rating range and, inside them, only the price range,
+ * so it costs time proportional to the products it returns rather than to the catalog size.
+ * <p>
+ * The index is updated while the product entry is locked. Readers skip entries whose current rating
+ * no longer matches the bucket they are met in, so an entry being moved is never returned twice.
+ */
+final class ProductIndex {
+
+    private static final Rating[] RATINGS = Rating.values();
+
+    private final List<ConcurrentSkipListMap<PriceKey, ProductEntry>> buckets = new ArrayList<>();
+
+    /**
+     * Instantiates a new empty Product index.
+     */
+    ProductIndex() {
+        for (int i = 0; i < RATINGS.length; i++) {
+            buckets.add(new ConcurrentSkipListMap<>());
+        }
+    }
+
+    /**
+     * Indexes a new entry.
+     *
+     * @param entry the entry
+     */
+    void add(ProductEntry entry) {
+        Product product = entry.getProduct();
+        buckets.get(product.getRating().ordinal()).put(new PriceKey(product.getPrice(), product.getId()), entry);
+    }
+
+    /**
+     * Moves an entry whose rating changed to its new bucket.
+     *
+     * @param entry  the entry
+     * @param before the previous rating
+     */
+    void move(ProductEntry entry, Rating before) {
+        Product product = entry.getProduct();
+        PriceKey key = new PriceKey(product.getPrice(), product.getId());
+        buckets.get(product.getRating().ordinal()).put(key, entry);
+        buckets.get(before.ordinal()).remove(key);
+    }
+
+    /**
+     * Runs a query.
+     *
+     * @param query the query
+     * @return the matching products, in query order
+     */
+    List<Product> query(ProductQuery query) {
+        List<Product> result = new ArrayList<>();
+        int low = query.getMinRating().ordinal();
+        int high = query.getMaxRating().ordinal();
+        BigDecimal minPrice = query.getMinPrice();
+        BigDecimal maxPrice = query.getMaxPrice();
+        if (low > high || query.getLimit() == 0
+                || minPrice != null && maxPrice != null && minPrice.compareTo(maxPrice) >= 0) {
+            return result;
+        }
+        if (query.isSortedByRating()) {
+            boolean descending = query.isRatingDescending();
+            for (int i = 0; i <= high - low && result.size() < query.getLimit(); i++) {
+                int rating = descending ? high - i : low + i;
+                collect(range(rating, query).values().iterator(), rating, query.getLimit(), result);
+            }
+            return result;
+        }
+        // merge the price ordered buckets of the rating range
+        PriorityQueue<Cursor> cursors = new PriorityQueue<>();
+        for (int rating = low; rating <= high; rating++) {
+            Cursor cursor = new Cursor(range(rating, query), rating, query.isPriceDescending());
+            if (cursor.advance()) {
+                cursors.add(cursor);
+            }
+        }
+        while (!cursors.isEmpty() && result.size() < query.getLimit()) {
+            Cursor cursor = cursors.poll();
+            result.add(cursor.product);
+            if (cursor.advance()) {
+                cursors.add(cursor);
+            }
+        }
+        return result;
+    }
+
+    private NavigableMap<PriceKey, ProductEntry> range(int rating, ProductQuery query) {
+        NavigableMap<PriceKey, ProductEntry> bucket = buckets.get(rating);
+        if (query.getMinPrice() != null) {
+            bucket = bucket.tailMap(new PriceKey(query.getMinPrice(), Integer.MIN_VALUE), true);
+        }
+        if (query.getMaxPrice() != null) {
+            bucket = bucket.headMap(new PriceKey(query.getMaxPrice(), Integer.MIN_VALUE), false);
+        }
+        return query.isPriceDescending() ? bucket.descendingMap() : bucket;
+    }
+
+    private static void collect(Iterator<ProductEntry> entries, int rating, int limit, Collection<Product> result) {
+        while (entries.hasNext() && result.size() < limit) {
+            Product product = entries.next().getProduct();
+            if (product.getRating().ordinal() == rating) {
+                result.add(product);
+            }
+        }
+    }
+
+    private static final class Cursor implements Comparable<Cursor> {
+        private final Iterator<ProductEntry> entries;
+        private final int rating;
+        private final boolean descending;
+        private Product product;
+
+        private Cursor(NavigableMap<PriceKey, ProductEntry> range, int rating, boolean descending) {
+            this.entries = range.values().iterator();
+            this.rating = rating;
+            this.descending = descending;
+        }
+
+        private boolean advance() {
+            while (entries.hasNext()) {
+                product = entries.next().getProduct();
+                if (product.getRating().ordinal() == rating) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        public int compareTo(Cursor other) {
+            int order = product.getPrice().compareTo(other.product.getPrice());
+            if (order == 0) {
+                order = Integer.compare(product.getId(), other.product.getId());
+            }
+            return descending ? -order : order;
+        }
+    }
+
+    private static final class PriceKey implements Comparable<PriceKey> {
+        private final BigDecimal price;
+        private final int id;
+
+        private PriceKey(BigDecimal price, int id) {
+            this.price = price;
+            this.id = id;
+        }
+
+        @Override
+        public int compareTo(PriceKey other) {
+            int order = price.compareTo(other.price);
+            return order != 0 ? order : Integer.compare(id, other.id);
+        }
+    }
+}
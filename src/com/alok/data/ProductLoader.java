@@ -0,0 +1,364 @@
+package com.alok.data;
+
+import com.alok.utils.IntHashMap;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.text.ParseException;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Bulk loader of product and review data files, one line per product or review in the layouts read by
+ * {@link ProductManager#parseProduct(String)} and {@link ProductManager#parseReview(String)}.
+ * <p>
+ * A file is memory mapped in chunks that are cut at line boundaries. Chunks are decoded and parsed in
+ * parallel, and the parsed chunks are applied to the catalog in file order, one chunk per batch. Reviews of
+ * a batch are grouped by product, so each product is re-rated once per batch whatever the number of its reviews.
+ * Load products before the reviews that refer to them. Failed lines are collected in the {@link LoadReport}:
+ * lines that do not parse, products whose id is already taken, reviews of unknown products and lines that are
+ * not valid UTF-8. Line numbers count every line of the file, blank ones included.
+ */
+public class ProductLoader {
+
+    private static final Logger logger = Logger.getLogger(ProductLoader.class.getName());
+
+    /**
+     * The default chunk size.
+     */
+    public static final int DEFAULT_CHUNK_SIZE = 4 * 1024 * 1024;
+
+    private final ProductManager manager;
+    private final int chunkSize;
+    private final int parallelism;
+
+    /**
+     * Instantiates a new Product loader with the default chunk size and one parser per processor.
+     *
+     * @param manager the manager to load into
+     */
+    public ProductLoader(ProductManager manager) {
+        this(manager, DEFAULT_CHUNK_SIZE, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Instantiates a new Product loader.
+     *
+     * @param manager     the manager to load into
+     * @param chunkSize   the number of bytes parsed and applied as one batch
+     * @param parallelism the number of parser threads
+     */
+    public ProductLoader(ProductManager manager, int chunkSize, int parallelism) {
+        if (chunkSize < 1 || parallelism < 1) {
+            throw new IllegalArgumentException("Chunk size and parallelism must be positive");
+        }
+        this.manager = manager;
+        this.chunkSize = chunkSize;
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Loads a products file.
+     *
+     * @param file the file
+     * @return the load report
+     * @throws IOException the io exception
+     */
+    public LoadReport loadProducts(Path file) throws IOException {
+        return load(file, false);
+    }
+
+    /**
+     * Loads a reviews file.
+     *
+     * @param file the file
+     * @return the load report
+     * @throws IOException the io exception
+     */
+    public LoadReport loadReviews(Path file) throws IOException {
+        return load(file, true);
+    }
+
+    private LoadReport load(Path file, boolean reviews) throws IOException {
+        long start = System.nanoTime();
+        List<LoadReport.LineError> errors = new ArrayList<>();
+        long lines = 0;
+        long lineNumber = 0;
+        long loaded = 0;
+        long size;
+        ExecutorService parsers = Executors.newFixedThreadPool(parallelism, r -> {
+            Thread thread = new Thread(r, "product-loader");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            size = channel.size();
+            Deque<Future<Chunk>> pending = new ArrayDeque<>();
+            long position = 0;
+            while (position < size || !pending.isEmpty()) {
+                // keep a bounded number of chunks in flight, but always apply them in file order
+                while (position < size && pending.size() < parallelism * 2) {
+                    ByteBuffer bytes = nextChunk(channel, position, size);
+                    position += bytes.remaining();
+                    pending.add(parsers.submit(() -> reviews ? parseReviews(bytes) : parseProducts(bytes)));
+                }
+                Chunk chunk = pending.remove().get();
+                loaded += reviews ? applyReviews(chunk) : applyProducts(chunk);
+                for (int i = 0; i < chunk.errorLines.size(); i++) {
+                    errors.add(new LoadReport.LineError(lineNumber + chunk.errorLines.get(i), chunk.errorTexts.get(i), chunk.errorMessages.get(i)));
+                }
+                lines += chunk.lines;
+                lineNumber += chunk.lineNumber;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while loading " + file, e);
+        } catch (ExecutionException e) {
+            throw new IOException("Failed to parse " + file, e.getCause());
+        } finally {
+            parsers.shutdownNow();
+        }
+        errors.sort((e1, e2) -> Long.compare(e1.getLineNumber(), e2.getLineNumber()));
+        LoadReport report = new LoadReport(lines, loaded, size, Duration.ofNanos(System.nanoTime() - start), errors);
+        logger.log(Level.INFO, "Loaded " + file + ": " + report);
+        return report;
+    }
+
+    private ByteBuffer nextChunk(FileChannel channel, long position, long size) throws IOException {
+        long length = Math.min(chunkSize, size - position);
+        while (true) {
+            ByteBuffer bytes = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+            if (position + length == size) {
+                return bytes;
+            }
+            for (int i = (int) length - 1; i >= 0; i--) {
+                if (bytes.get(i) == '\n') {
+                    return bytes.limit(i + 1).slice();
+                }
+            }
+            // a line longer than the chunk, widen the window
+            length = Math.min(length * 2, size - position);
+        }
+    }
+
+    /**
+     * Decodes a chunk. A chunk that is not valid UTF-8 is decoded line by line, and each malformed line is
+     * recorded as an error and replaced by a blank line, so that the other lines still load.
+     *
+     * @param bytes the chunk
+     * @return the decoded chunk
+     */
+    private static Chunk decode(ByteBuffer bytes) {
+        Chunk chunk = new Chunk();
+        try {
+            chunk.text = decoder(CodingErrorAction.REPORT).decode(bytes.duplicate());
+            return chunk;
+        } catch (CharacterCodingException e) {
+            // '\n' is never part of a multi byte sequence, so lines can be decoded one by one
+        }
+        CharsetDecoder decoder = decoder(CodingErrorAction.REPORT);
+        StringBuilder text = new StringBuilder(bytes.remaining());
+        long lineNumber = 0;
+        int start = 0;
+        while (start < bytes.limit()) {
+            int end = start;
+            while (end < bytes.limit() && bytes.get(end) != '\n') {
+                end++;
+            }
+            lineNumber++;
+            ByteBuffer line = bytes.duplicate().position(start).limit(end);
+            try {
+                text.append(decoder.decode(line));
+            } catch (CharacterCodingException e) {
+                String replaced = StandardCharsets.UTF_8.decode(line.position(start)).toString();
+                chunk.addError(lineNumber, replaced, "Malformed UTF-8 input");
+            }
+            if (end < bytes.limit()) {
+                text.append('\n');
+            }
+            start = end + 1;
+        }
+        chunk.text = CharBuffer.wrap(text);
+        return chunk;
+    }
+
+    private static CharsetDecoder decoder(CodingErrorAction action) {
+        return StandardCharsets.UTF_8.newDecoder()
+                .onMalformedInput(action)
+                .onUnmappableCharacter(action);
+    }
+
+    private static Chunk parseProducts(ByteBuffer bytes) {
+        Chunk chunk = decode(bytes);
+        DataLineParser parser = new DataLineParser();
+        forEachLine(chunk, (line, start, end) -> {
+            parser.parseProduct(line);
+            switch (parser.getType()) {
+                case DataLineParser.DRINK:
+                    chunk.addProduct(new Drink(parser.getId(), parser.getName(), parser.getPrice(), parser.getRating()), start, end);
+                    break;
+                case DataLineParser.FOOD:
+                    chunk.addProduct(new Food(parser.getId(), parser.getName(), parser.getPrice(), parser.getRating(), parser.getBestBefore()), start, end);
+                    break;
+                default:
+                    throw new ParseException("Unknown product type", 0);
+            }
+        });
+        return chunk;
+    }
+
+    private static Chunk parseReviews(ByteBuffer bytes) {
+        Chunk chunk = decode(bytes);
+        DataLineParser parser = new DataLineParser();
+        forEachLine(chunk, (line, start, end) -> {
+            parser.parseReview(line);
+            chunk.addReview(parser.getId(), new Review(parser.getRating(), parser.getComments()), start, end);
+        });
+        return chunk;
+    }
+
+    private static void forEachLine(Chunk chunk, LineHandler handler) {
+        CharBuffer text = chunk.text;
+        int start = 0;
+        int length = text.length();
+        while (start < length) {
+            int end = start;
+            while (end < length && text.charAt(end) != '\n') {
+                end++;
+            }
+            int next = end + 1;
+            chunk.lineNumber++;
+            if (end > start && text.charAt(end - 1) == '\r') {
+                end--;
+            }
+            if (end > start) {
+                chunk.lines++;
+                CharSequence line = text.subSequence(start, end);
+                try {
+                    handler.handle(line, start, end);
+                } catch (ParseException e) {
+                    chunk.addError(chunk.lineNumber, line.toString(), e.getMessage());
+                }
+            }
+            start = next;
+        }
+    }
+
+    private long applyProducts(Chunk chunk) {
+        long loaded = 0;
+        for (int i = 0; i < chunk.products.size(); i++) {
+            Product product = chunk.products.get(i);
+            if (manager.tryAddProduct(product)) {
+                loaded++;
+            } else {
+                chunk.addError(chunk.lineNumbers[i], chunk.line(i), "Product with given id: " + product.getId() + " already exists.");
+            }
+        }
+        return loaded;
+    }
+
+    private long applyReviews(Chunk chunk) {
+        // group the reviews of the batch by product, keeping their order within each product
+        IntHashMap<List<Integer>> byProduct = new IntHashMap<>();
+        for (int i = 0; i < chunk.reviews.size(); i++) {
+            List<Integer> indexes = byProduct.get(chunk.reviewIds[i]);
+            if (indexes == null) {
+                indexes = new ArrayList<>();
+                byProduct.put(chunk.reviewIds[i], indexes);
+            }
+            indexes.add(i);
+        }
+        long loaded = 0;
+        for (int i = 0; i < chunk.reviews.size(); i++) {
+            int id = chunk.reviewIds[i];
+            List<Integer> indexes = byProduct.remove(id);
+            if (indexes == null) {
+                continue;
+            }
+            ProductEntry entry = manager.getEntry(id);
+            if (entry == null) {
+                for (int index : indexes) {
+                    chunk.addError(chunk.lineNumbers[index], chunk.line(index), "Product with given id: " + id + " not found.");
+                }
+            } else {
+                List<Review> reviews = new ArrayList<>(indexes.size());
+                for (int index : indexes) {
+                    reviews.add(chunk.reviews.get(index));
+                }
+                manager.addReviews(entry, reviews);
+                loaded += reviews.size();
+            }
+        }
+        return loaded;
+    }
+
+    @FunctionalInterface
+    private interface LineHandler {
+        void handle(CharSequence line, int start, int end) throws ParseException;
+    }
+
+    private static final class Chunk {
+        private CharBuffer text;
+        private long lines;
+        private long lineNumber;
+        private final List<Product> products = new ArrayList<>();
+        private final List<Review> reviews = new ArrayList<>();
+        private int[] reviewIds = new int[64];
+        private long[] lineNumbers = new long[64];
+        private int[] bounds = new int[128];
+        private final List<Long> errorLines = new ArrayList<>();
+        private final List<String> errorTexts = new ArrayList<>();
+        private final List<String> errorMessages = new ArrayList<>();
+
+        private void addProduct(Product product, int start, int end) {
+            addLine(products.size(), start, end);
+            products.add(product);
+        }
+
+        private void addReview(int id, Review review, int start, int end) {
+            int index = reviews.size();
+            addLine(index, start, end);
+            reviews.add(review);
+            reviewIds[index] = id;
+        }
+
+        private void addLine(int index, int start, int end) {
+            if (index == lineNumbers.length) {
+                reviewIds = Arrays.copyOf(reviewIds, index * 2);
+                lineNumbers = Arrays.copyOf(lineNumbers, index * 2);
+                bounds = Arrays.copyOf(bounds, index * 4);
+            }
+            lineNumbers[index] = lineNumber;
+            bounds[2 * index] = start;
+            bounds[2 * index + 1] = end;
+        }
+
+        private String line(int index) {
+            return text.subSequence(bounds[2 * index], bounds[2 * index + 1]).toString();
+        }
+
+        private void addError(long lineNumber, String line, String message) {
+            errorLines.add(lineNumber);
+            errorTexts.add(line);
+            errorMessages.add(message);
+        }
+    }
+}
@@ -1,18 +1,32 @@
 package com.alok.data;
 
+import com.alok.utils.ConcurrentIntHashMap;
+import com.alok.utils.IntHashMap;
+import com.alok.utils.IntMap;
+
 import java.math.BigDecimal;
-import java.text.MessageFormat;
-import java.text.NumberFormat;
 import java.text.ParseException;
+import java.time.Clock;
 import java.time.LocalDate;
-import java.time.format.DateTimeFormatter;
-import java.time.format.DateTimeParseException;
-import java.time.format.FormatStyle;
+import java.time.LocalDateTime;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
 import java.util.function.Predicate;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * The type Product manager.
@@ -23,23 +37,31 @@ public class ProductManager {
 
     private static final Logger logger = Logger.getLogger(ProductManager.class.getName());
 
-    private ResourceFormatter formatter;
+    private volatile ResourceFormatter formatter;
+
+    private final IntMap<ProductEntry> products;
 
-    private ResourceBundle config = ResourceBundle.getBundle("com.alok.data.config");
+    private final ProductIndex index = new ProductIndex();
+    private final DiscountLedger discounts = new DiscountLedger();
+    private final CatalogMetrics metrics;
+    private final Locale reviewLocale;
+    private volatile ReviewIndex reviewIndex;
+    private volatile boolean reviewIndexBuilt;
+    private final ChangeStream changes = new ChangeStream(CHANGE_BUFFER_SIZE);
+    private volatile ReviewSpill reviewSpill;
+    private final AtomicReference<PersistentProductMap> versions = new AtomicReference<>(PersistentProductMap.EMPTY);
+    private volatile Clock clock = Clock.systemDefaultZone();
 
-    private MessageFormat reviewFormat = new MessageFormat(config.getString("review.data.format"));
-    private MessageFormat productFormat = new MessageFormat(config.getString("product.data.format"));
+    private final ReentrantReadWriteLock checkpointLock = new ReentrantReadWriteLock();
+    private volatile CatalogJournal journal;
 
-    private final Map<Product, List<Review>> products = new HashMap<>();
+    private static final int RENDER_CACHE_SIZE = 10_000;
+    static final int REPORT_BUFFER_SIZE = 8192;
+    private static final int CHANGE_BUFFER_SIZE = 65_536;
+    private static final int CHANGE_BATCH_SIZE = 256;
+    private final Map<Locale, RenderCache> renderCaches = new ConcurrentHashMap<>();
 
-    private static final Map<String, ResourceFormatter> formatters =
-            new HashMap<String, ResourceFormatter>() {{
-                put("en-US", new ResourceFormatter(Locale.US));
-                put("fr-FR", new ResourceFormatter(Locale.FRANCE));
-                put("ru-RU", new ResourceFormatter(new Locale("ru", "RU")));
-                put("zh-TW", new ResourceFormatter(Locale.TRADITIONAL_CHINESE));
-                put("hi-IN", new ResourceFormatter(new Locale("hi", "IN")));
-            }};
+    private static final FormatterRegistry formatters = new FormatterRegistry();
 
     /**
      * Instantiates a new Product manager.
@@ -50,13 +72,38 @@ public class ProductManager {
         this(locale.toLanguageTag());
     }
 
+    /**
+     * Instantiates a new Product manager.
+     *
+     * @param locale     the locale
+     * @param concurrent whether the manager is shared between threads
+     */
+    public ProductManager(Locale locale, boolean concurrent) {
+        this(locale.toLanguageTag(), concurrent);
+    }
+
     /**
      * Instantiates a new Product manager.
      *
      * @param langTag the lang tag
      */
     public ProductManager(String langTag) {
+        this(langTag, false);
+    }
+
+    /**
+     * Instantiates a new Product manager. A concurrent manager stripes its product index over
+     * independently locked segments so that many threads can create, review and read different
+     * products in parallel; a plain manager must be confined to one thread.
+     *
+     * @param langTag    the lang tag
+     * @param concurrent whether the manager is shared between threads
+     */
+    public ProductManager(String langTag, boolean concurrent) {
+        products = concurrent ? new ConcurrentIntHashMap<>() : new IntHashMap<>();
+        metrics = new CatalogMetrics(products::size, this::countReviews);
         changeLocal(langTag);
+        reviewLocale = formatter.getLocale();
     }
 
     /**
@@ -65,7 +112,61 @@ public class ProductManager {
      * @param langTag the lang tag
      */
     public void changeLocal(String langTag) {
-        formatter = formatters.getOrDefault(langTag, formatters.get("en-US"));
+        formatter = formatterFor(langTag);
+    }
+
+    /**
+     * Gets the formatter of a locale.
+     *
+     * @param langTag the lang tag
+     * @return the formatter, of the default locale when the tag is not supported
+     */
+    static ResourceFormatter formatterFor(String langTag) {
+        return formatters.get(langTag);
+    }
+
+    /**
+     * Adds a locale under a language tag, for resource bundles that cannot be discovered on the class path.
+     *
+     * @param langTag the lang tag
+     * @param locale  the locale of the resource bundle and of the number and date formats
+     */
+    public static void registerLocale(String langTag, Locale locale) {
+        formatters.register(langTag, locale);
+    }
+
+    /**
+     * Loads the resources and formats of locales ahead of their first use. Locales are otherwise loaded
+     * when they are first used.
+     *
+     * @param langTags the lang tags, or none for every supported locale
+     */
+    public static void prewarmLocales(String... langTags) {
+        formatters.prewarm(langTags.length == 0 ? formatters.getSupported() : Arrays.asList(langTags));
+    }
+
+    /**
+     * Sets the clock discounts are evaluated with.
+     *
+     * @param clock the clock
+     */
+    public void setClock(Clock clock) {
+        this.clock = Objects.requireNonNull(clock);
+    }
+
+    /**
+     * Gets the operation metrics of this manager, disabled until {@link CatalogMetrics#setEnabled(boolean)}.
+     *
+     * @return the metrics
+     */
+    public CatalogMetrics getMetrics() {
+        return metrics;
+    }
+
+    private long countReviews() {
+        long[] count = new long[1];
+        products.forEachValue(entry -> count[0] += entry.getReviewCount());
+        return count[0];
     }
 
     /**
@@ -74,11 +175,12 @@ public class ProductManager {
      * @return the set
      */
     public Set<String> supportedLocals() {
-        return formatters.keySet();
+        return formatters.getSupported();
     }
 
     /**
-     * Create product product.
+     * Create product product. When the manager is journaled, the product is on disk only once
+     * {@link #awaitDurable(int)} returns.
      *
      * @param id         the id
      * @param name       the name
@@ -86,15 +188,20 @@ public class ProductManager {
      * @param rating     the rating
      * @param bestBefore the best before
      * @return the product
+     * @throws IllegalArgumentException when the best before date is missing
      */
     public Product createProduct(int id, String name, BigDecimal price, Rating rating, LocalDate bestBefore) {
-        Product product = new Food(id, name, price, rating, bestBefore);
-        products.putIfAbsent(product, new ArrayList<>());
-        return product;
+        long start = metrics.start();
+        try {
+            return addProduct(new Food(id, name, price, rating, bestBefore));
+        } finally {
+            metrics.stop(Operation.CREATE, start);
+        }
     }
 
     /**
-     * Create product product.
+     * Create product product. When the manager is journaled, the product is on disk only once
+     * {@link #awaitDurable(int)} returns.
      *
      * @param id     the id
      * @param name   the name
@@ -103,9 +210,96 @@ public class ProductManager {
      * @return the product
      */
     public Product createProduct(int id, String name, BigDecimal price, Rating rating) {
-        Product product = new Drink(id, name, price, rating);
-        products.putIfAbsent(product, new ArrayList<>());
-        return product;
+        long start = metrics.start();
+        try {
+            return addProduct(new Drink(id, name, price, rating));
+        } finally {
+            metrics.stop(Operation.CREATE, start);
+        }
+    }
+
+    /**
+     * Creates several products. Each product is created unless a product with its id already exists; invalid
+     * specs are reported and do not stop the batch. The batch is measured as one create operation.
+     *
+     * @param specs the products
+     * @return one result per spec, in order
+     */
+    public List<BatchResult> createProducts(Collection<ProductSpec> specs) {
+        return createProducts(specs.iterator(), specs.size());
+    }
+
+    /**
+     * Creates the products of a stream, consumed in order.
+     *
+     * @param specs the products
+     * @return one result per spec, in order
+     * @see #createProducts(Collection)
+     */
+    public List<BatchResult> createProducts(Stream<ProductSpec> specs) {
+        return createProducts(specs.sequential().iterator(), 16);
+    }
+
+    private List<BatchResult> createProducts(Iterator<ProductSpec> specs, int expected) {
+        List<BatchResult> results = new ArrayList<>(expected);
+        long start = metrics.start();
+        try {
+            for (int index = 0; specs.hasNext(); index++) {
+                ProductSpec spec = specs.next();
+                try {
+                    Product product = spec.toProduct();
+                    ProductEntry existing = insert(product);
+                    results.add(existing == null
+                            ? new BatchResult(index, spec.getId(), BatchResult.Status.CREATED, product, null)
+                            : new BatchResult(index, spec.getId(), BatchResult.Status.EXISTS, existing.getProduct(), null));
+                } catch (IllegalArgumentException e) {
+                    results.add(new BatchResult(index, spec.getId(), BatchResult.Status.INVALID, null, e.getMessage()));
+                }
+            }
+        } finally {
+            metrics.stop(Operation.CREATE, start);
+        }
+        return results;
+    }
+
+    /**
+     * Adds several reviews. The reviews are grouped by product, and the reviews of one product are added
+     * together and re-rate it once, in the order of the batch. Unknown products and reviews without a rating
+     * are reported per review. The batch is measured as one review operation.
+     *
+     * @param reviews the reviews
+     * @return one result per review, in order
+     */
+    public List<BatchResult> reviewProducts(Collection<ReviewSpec> reviews) {
+        BatchResult[] results = new BatchResult[reviews.size()];
+        long start = metrics.start();
+        try {
+            Map<Integer, List<Review>> groups = new LinkedHashMap<>();
+            Map<Integer, List<Integer>> positions = new HashMap<>();
+            int index = 0;
+            for (ReviewSpec spec : reviews) {
+                if (spec.getRating() == null) {
+                    results[index] = new BatchResult(index, spec.getId(), BatchResult.Status.INVALID, null, "Review needs a rating");
+                } else {
+                    groups.computeIfAbsent(spec.getId(), id -> new ArrayList<>()).add(new Review(spec.getRating(), spec.getComments()));
+                    positions.computeIfAbsent(spec.getId(), id -> new ArrayList<>()).add(index);
+                }
+                index++;
+            }
+            for (Map.Entry<Integer, List<Review>> group : groups.entrySet()) {
+                int id = group.getKey();
+                ProductEntry entry = products.get(id);
+                Product product = entry == null ? null : addReviews(entry, group.getValue());
+                for (int position : positions.get(id)) {
+                    results[position] = product == null
+                            ? new BatchResult(position, id, BatchResult.Status.NOT_FOUND, null, null)
+                            : new BatchResult(position, id, BatchResult.Status.REVIEWED, product, null);
+                }
+            }
+        } finally {
+            metrics.stop(Operation.REVIEW, start);
+        }
+        return Arrays.asList(results);
     }
 
     /**
@@ -116,16 +310,310 @@ public class ProductManager {
      * @throws ProductManagerException the product manager exception
      */
     public Product findProduct(int id) throws ProductManagerException {
-        return products.keySet()
-                .stream()
-                .filter(p -> p.getId() == id)
-                .findFirst()
-                .orElseThrow(() -> new ProductManagerException("Product with given id: " + id + " not found."));
+        long start = metrics.start();
+        try {
+            return findEntry(id).getProduct();
+        } finally {
+            metrics.stop(Operation.FIND, start);
+        }
+    }
+
+    /**
+     * Adds a product unless a product with the same id is already in the catalog.
+     *
+     * @param product the product
+     * @return the product
+     */
+    Product addProduct(Product product) {
+        insert(product);
+        return product;
+    }
+
+    /**
+     * Adds a product unless a product with the same id is already in the catalog.
+     *
+     * @param product the product
+     * @return whether the product was added, false when its id was taken
+     */
+    boolean tryAddProduct(Product product) {
+        return insert(product) == null;
+    }
+
+    private ProductEntry insert(Product product) {
+        ProductEntry existing;
+        CatalogJournal journal = this.journal;
+        if (journal != null) {
+            checkpointLock.readLock().lock();
+        }
+        try {
+            long discount = DiscountLedger.discountCents(product);
+            ProductEntry entry = new ProductEntry(product);
+            // hold the new entry until it is journaled and indexed, so that no review of it can overtake it
+            synchronized (entry) {
+                existing = products.putIfAbsent(product.getId(), entry);
+                if (existing == null) {
+                    if (reviewIndex != null) {
+                        entry.setReviewsIndexed();
+                    }
+                    if (journal != null) {
+                        try {
+                            entry.setJournalSequence(journal.appendProduct(product));
+                        } catch (IOException e) {
+                            // nothing but the id slot was published yet, and a failed journal takes no reviews
+                            products.remove(product.getId());
+                            throw journalFailure(e);
+                        }
+                    }
+                    index.add(entry);
+                    discounts.add(product, discount);
+                    publishVersion(product);
+                    changes.publish(ChangeEvent.Type.CREATED, product, null, Collections.emptyList());
+                }
+            }
+        } finally {
+            if (journal != null) {
+                checkpointLock.readLock().unlock();
+            }
+        }
+        return existing;
+    }
+
+    /**
+     * Adds reviews to a product and re-rates it once.
+     *
+     * @param entry   the catalog entry of the product
+     * @param reviews the reviews
+     * @return the re-rated product
+     */
+    Product addReviews(ProductEntry entry, List<Review> reviews) {
+        CatalogJournal journal = this.journal;
+        if (journal != null) {
+            checkpointLock.readLock().lock();
+        }
+        try {
+            Rating before;
+            Product product;
+            ReviewIndex indexTo;
+            synchronized (entry) {
+                // the reviews are journaled before they are applied, so a failed append leaves the product as it was
+                if (journal != null) {
+                    entry.setJournalSequence(journal.appendReviews(entry.getProduct().getId(), reviews));
+                }
+                before = entry.getProduct().getRating();
+                product = entry.addReviews(reviews, reviewSpill);
+                indexTo = entry.isReviewsIndexed() ? reviewIndex : null;
+                if (before != product.getRating()) {
+                    index.move(entry, before);
+                    discounts.move(product, before);
+                    publishVersion(product);
+                }
+                changes.publish(before == product.getRating() ? ChangeEvent.Type.REVIEWED : ChangeEvent.Type.RERATED,
+                        product, before, reviews);
+            }
+            if (indexTo != null) {
+                for (Review review : reviews) {
+                    indexTo.add(product.getId(), review);
+                }
+            }
+            if (before != product.getRating()) {
+                for (RenderCache cache : renderCaches.values()) {
+                    cache.invalidate(product.getId());
+                }
+            }
+            return product;
+        } catch (IOException e) {
+            throw journalFailure(e);
+        } finally {
+            if (journal != null) {
+                checkpointLock.readLock().unlock();
+            }
+        }
+    }
+
+    /**
+     * Adds a product with its reviews, as exported from another catalog, unless a product with the same id is
+     * already in the catalog. The product is re-rated from the reviews.
+     *
+     * @param spec    the product
+     * @param reviews the reviews
+     * @throws IllegalArgumentException when the spec misses a name, price or rating
+     */
+    public void importProduct(ProductSpec spec, List<Review> reviews) {
+        restore(spec.toProduct(), reviews);
+    }
+
+    /**
+     * Restores a product with its reviews, as read from a snapshot.
+     *
+     * @param product the product, with its current rating
+     * @param reviews the reviews
+     */
+    void restore(Product product, List<Review> reviews) {
+        addProduct(product);
+        if (!reviews.isEmpty()) {
+            addReviews(products.get(product.getId()), reviews);
+        }
+    }
+
+    /**
+     * Waits until the latest change of a product is on disk, when the manager is journaled by a
+     * {@link CatalogStore}; returns at once otherwise. Changes are journaled in the order they are made, so a
+     * {@code createProduct} or {@code reviewProduct} of the product that returned before this call is durable
+     * once it returns.
+     *
+     * @param id the product id
+     * @throws ProductManagerException when the product is not in the catalog
+     * @throws IOException             when the journal failed before the change was written
+     */
+    public void awaitDurable(int id) throws ProductManagerException, IOException {
+        ProductEntry entry = findEntry(id);
+        CatalogJournal journal = this.journal;
+        if (journal != null) {
+            journal.await(entry.getJournalSequence());
+        }
+    }
+
+    /**
+     * Sets the journal every change is appended to, or null to stop journaling.
+     *
+     * @param journal the journal
+     */
+    void setJournal(CatalogJournal journal) {
+        this.journal = journal;
+    }
+
+    /**
+     * Waits until every journaled change made so far is on disk; does nothing when the manager is not journaled.
+     *
+     * @throws IOException the io exception
+     */
+    void syncJournal() throws IOException {
+        CatalogJournal journal = this.journal;
+        if (journal != null) {
+            journal.sync();
+        }
+    }
+
+    /**
+     * Runs an action while no change is being made to the catalog.
+     *
+     * @param action the action
+     * @throws IOException the io exception
+     */
+    void checkpoint(CheckpointAction action) throws IOException {
+        checkpointLock.writeLock().lock();
+        try {
+            action.run();
+        } finally {
+            checkpointLock.writeLock().unlock();
+        }
+    }
 
+    /**
+     * Takes a snapshot of the products with their current ratings, in constant time. Later changes do not
+     * show in the snapshot.
+     *
+     * @return the snapshot
+     */
+    public CatalogSnapshot snapshot() {
+        return new CatalogSnapshot(versions.get());
     }
 
     /**
-     * Review product product.
+     * Makes a new or re-rated product part of the next version of the catalog. Called while the entry of the
+     * product is locked, so that the versions of one product follow its changes.
+     *
+     * @param product the product
+     */
+    private void publishVersion(Product product) {
+        PersistentProductMap current;
+        do {
+            current = versions.get();
+        } while (!versions.compareAndSet(current, current.put(product)));
+    }
+
+    /**
+     * Gets the reviews of a catalog entry, evicted ones included.
+     *
+     * @param entry the entry
+     * @return the reviews, best rated first
+     */
+    List<Review> getReviews(ProductEntry entry) {
+        return entry.getReviews(reviewSpill);
+    }
+
+    /**
+     * Gets the reviews a product had when its entry had the given review counts, best rated first.
+     *
+     * @param entry  the entry
+     * @param counts the counts from {@link ProductEntry#getReviewCounts()}
+     * @return the reviews
+     */
+    List<Review> getReviews(ProductEntry entry, int[] counts) {
+        return entry.getReviews(counts, reviewSpill);
+    }
+
+    /**
+     * Keeps only the most recent reviews of every product and rating in memory, at least {@code perRating}
+     * of them and fewer than 64 more, and moves older reviews to a scratch file as they are displaced. Reports
+     * read evicted reviews back from the file when their page reaches them. The file is deleted on exit.
+     *
+     * @param perRating the number of most recent reviews per product and rating to keep in memory
+     * @param spillFile the scratch file, truncated
+     * @throws IOException the io exception
+     */
+    public synchronized void retainReviews(int perRating, Path spillFile) throws IOException {
+        if (reviewSpill != null) {
+            throw new IllegalStateException("Reviews are already retained");
+        }
+        reviewSpill = new ReviewSpill(spillFile, perRating);
+        spillFile.toFile().deleteOnExit();
+    }
+
+    /**
+     * Performs the action for every catalog entry.
+     *
+     * @param action the action
+     */
+    void forEachEntry(Consumer<ProductEntry> action) {
+        products.forEachValue(action);
+    }
+
+    private static UncheckedIOException journalFailure(IOException e) {
+        logger.log(Level.SEVERE, "Journal append failed", e);
+        return new UncheckedIOException(e);
+    }
+
+    /**
+     * Gets entry.
+     *
+     * @param id the id
+     * @return the catalog entry of the product, or null
+     */
+    ProductEntry getEntry(int id) {
+        return products.get(id);
+    }
+
+    /**
+     * Is concurrent boolean.
+     *
+     * @return whether the manager may be shared between threads
+     */
+    boolean isConcurrent() {
+        return products instanceof ConcurrentIntHashMap;
+    }
+
+    private ProductEntry findEntry(int id) throws ProductManagerException {
+        ProductEntry entry = products.get(id);
+        if (entry == null) {
+            throw new ProductManagerException("Product with given id: " + id + " not found.");
+        }
+        return entry;
+    }
+
+    /**
+     * Review product product. When the manager is journaled, the review is on disk only once
+     * {@link #awaitDurable(int)} returns.
      *
      * @param id       the id
      * @param rating   the rating
@@ -142,7 +630,8 @@ public class ProductManager {
     }
 
     /**
-     * Review product product.
+     * Review product product. When the manager is journaled, the review is on disk only once
+     * {@link #awaitDurable(int)} returns.
      *
      * @param product  the product
      * @param rating   the rating
@@ -150,22 +639,82 @@ public class ProductManager {
      * @return the product
      */
     public Product reviewProduct(Product product, Rating rating, String comments) {
-        List<Review> reviews = products.get(product);
-        products.remove(product);
-        reviews.add(new Review(rating, comments));
-
-        product = product.applyRating(
-                Rateable.convert(
-                        (int) Math.round(
-                                reviews.stream()
-                                        .mapToInt(r -> r.getRating().ordinal())
-                                        .average()
-                                        .orElse(0)
-                        )
-                )
-        );
-        products.put(product, reviews);
-        return product;
+        long start = metrics.start();
+        try {
+            return addReviews(products.get(product.getId()), Collections.singletonList(new Review(rating, comments)));
+        } finally {
+            metrics.stop(Operation.REVIEW, start);
+        }
+    }
+
+    /**
+     * Subscribes to the changes made from now on, delivered in batches of up to 256 changes.
+     *
+     * @param listener the listener
+     * @return the running subscription
+     */
+    public ChangeSubscription subscribe(ChangeListener listener) {
+        return subscribe(changes.getNextSequence(), CHANGE_BATCH_SIZE, listener);
+    }
+
+    /**
+     * Subscribes to the changes from a sequence on, for instance the position of a closed subscription.
+     * The last 65536 changes are kept; when older changes are asked for, the listener is told of the gap.
+     *
+     * @param from      the first sequence to deliver
+     * @param batchSize the maximum number of changes delivered at once
+     * @param listener  the listener
+     * @return the running subscription
+     */
+    public ChangeSubscription subscribe(long from, int batchSize, ChangeListener listener) {
+        return changes.subscribe(from, batchSize, listener);
+    }
+
+    /**
+     * Gets change sequence.
+     *
+     * @return the sequence the next change will get
+     */
+    public long getChangeSequence() {
+        return changes.getNextSequence();
+    }
+
+    /**
+     * Gets the statistics of the rendered product line caches.
+     *
+     * @return the stats, by language tag
+     */
+    public Map<String, CacheStats> getRenderCacheStats() {
+        Map<String, CacheStats> stats = new TreeMap<>();
+        renderCaches.forEach((locale, cache) -> stats.put(locale.toLanguageTag(), cache.getStats()));
+        return stats;
+    }
+
+    /**
+     * Renders the report line of a product in the given locale, from the rendered product line cache.
+     *
+     * @param product the product
+     * @param langTag the lang tag of the locale to render in, independent of {@link #changeLocal(String)}
+     * @return the line
+     */
+    public String formatProduct(Product product, String langTag) {
+        return renderProduct(formatterFor(langTag), product);
+    }
+
+    private String renderProduct(ResourceFormatter formatter, Product product) {
+        return renderCaches.computeIfAbsent(formatter.getLocale(), locale -> new RenderCache(RENDER_CACHE_SIZE))
+                .get(product, formatter::formatProduct);
+    }
+
+    /**
+     * Gets rating stats.
+     *
+     * @param id the id
+     * @return a copy of the review count, rating histogram and mean of the product
+     * @throws ProductManagerException the product manager exception
+     */
+    public RatingStats getRatingStats(int id) throws ProductManagerException {
+        return findEntry(id).getStats();
     }
 
     /**
@@ -187,24 +736,79 @@ public class ProductManager {
      * @param product the product
      */
     public void printProductReport(Product product) {
-        List<Review> reviews = products.get(product);
+        Writer out = new BufferedWriter(new ConsoleWriter(), REPORT_BUFFER_SIZE);
+        try {
+            writeProductReport(product, 0, Integer.MAX_VALUE, out);
+            out.write('\n');
+            out.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
 
-        StringBuilder text = new StringBuilder();
-        text.append(formatter.formatProduct(product));
-        text.append("\n");
-        Collections.sort(reviews);
+    /**
+     * Writes the report of a product and a page of its reviews, best rated first.
+     *
+     * @param product the product
+     * @param offset  the number of reviews to skip
+     * @param limit   the maximum number of reviews to write
+     * @param out     the output
+     * @return the number of reviews written
+     * @throws IOException the io exception
+     */
+    public int writeProductReport(Product product, int offset, int limit, Appendable out) throws IOException {
+        return writeProductReport(product, this.formatter, offset, limit, out);
+    }
 
-        if (reviews.isEmpty()) {
-            text.append(formatter.getText("no.review")).append('\n');
-        } else {
-            text.append(
-                    reviews.stream()
-                            .map(r -> formatter.formatReview(r) + '\n')
-                            .collect(Collectors.joining())
-            );
+    /**
+     * Writes the report of a product and a page of its reviews in the given locale, best rated first.
+     *
+     * @param product the product
+     * @param langTag the lang tag of the locale to render in, independent of {@link #changeLocal(String)}
+     * @param offset  the number of reviews to skip
+     * @param limit   the maximum number of reviews to write
+     * @param out     the output
+     * @return the number of reviews written
+     * @throws IOException the io exception
+     */
+    public int writeProductReport(Product product, String langTag, int offset, int limit, Appendable out) throws IOException {
+        return writeProductReport(product, formatterFor(langTag), offset, limit, out);
+    }
+
+    private int writeProductReport(Product product, ResourceFormatter formatter, int offset, int limit, Appendable out) throws IOException {
+        long start = metrics.start();
+        try {
+            ProductEntry entry = products.get(product.getId());
+            out.append(renderProduct(formatter, product)).append('\n');
+            if (entry.getReviewCount() == 0) {
+                out.append(formatter.getText("no.review")).append('\n');
+                return 0;
+            }
+            List<Review> reviews = entry.getReviews(offset, limit, reviewSpill);
+            for (Review review : reviews) {
+                out.append(formatter.formatReview(review)).append('\n');
+            }
+            return reviews.size();
+        } finally {
+            metrics.stop(Operation.REPORT, start);
         }
-        System.out.println(text);
+    }
 
+    /**
+     * Writes the report of a product and a page of its reviews to a channel, through a bounded UTF-8 buffer.
+     *
+     * @param product the product
+     * @param offset  the number of reviews to skip
+     * @param limit   the maximum number of reviews to write
+     * @param channel the channel, left open
+     * @return the number of reviews written
+     * @throws IOException the io exception
+     */
+    public int writeProductReport(Product product, int offset, int limit, WritableByteChannel channel) throws IOException {
+        Writer out = Channels.newWriter(channel, StandardCharsets.UTF_8.newEncoder(), REPORT_BUFFER_SIZE);
+        int written = writeProductReport(product, offset, limit, out);
+        out.flush();
+        return written;
     }
 
     /**
@@ -214,15 +818,209 @@ public class ProductManager {
      * @param sorter the sorter
      */
     public void printProducts(Predicate<Product> filter, Comparator<Product> sorter) {
-        StringBuilder text = new StringBuilder();
-        text.append(
-                products.keySet().stream()
-                        .sorted(sorter)
-                        .filter(filter)
-                        .map(p -> formatter.formatProduct(p) + '\n')
-                        .collect(Collectors.joining())
-        );
-        System.out.println(text);
+        Writer out = new BufferedWriter(new ConsoleWriter(), REPORT_BUFFER_SIZE);
+        try {
+            writeProducts(filter, sorter, 0, Integer.MAX_VALUE, out);
+            out.write('\n');
+            out.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Print products matching a query.
+     *
+     * @param query the query
+     */
+    public void printProducts(ProductQuery query) {
+        Writer out = new BufferedWriter(new ConsoleWriter(), REPORT_BUFFER_SIZE);
+        try {
+            writeProducts(query, out);
+            out.write('\n');
+            out.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Lists the products matching a query from the rating and price indexes, in time proportional to the
+     * number of products returned.
+     *
+     * @param query the query
+     * @return the products
+     */
+    public List<Product> findProducts(ProductQuery query) {
+        return index.query(query);
+    }
+
+    /**
+     * Builds the full text index of review comments and keeps it up to date from then on. Until this is called,
+     * or the first {@link #searchReviews(ReviewQuery)}, reviews are not tokenized at all.
+     *
+     * @throws UncheckedIOException when evicted reviews cannot be read
+     */
+    public synchronized void enableReviewIndex() {
+        if (reviewIndexBuilt) {
+            return;
+        }
+        ReviewIndex index = new ReviewIndex(reviewLocale);
+        // new reviews of an entry go to the index once the entry is marked, the reviews it holds by then are added here
+        reviewIndex = index;
+        ReviewSpill spill = reviewSpill;
+        products.forEachValue(entry -> {
+            List<Review> reviews;
+            synchronized (entry) {
+                if (entry.isReviewsIndexed()) {
+                    return;
+                }
+                entry.setReviewsIndexed();
+                reviews = entry.getReviews(spill);
+            }
+            int id = entry.getProduct().getId();
+            for (Review review : reviews) {
+                index.add(id, review);
+            }
+        });
+        reviewIndexBuilt = true;
+    }
+
+    /**
+     * Finds the products whose review comments match a full text query, most hits first. Comments are
+     * tokenized in the locale the manager was created with. The first search builds the index, see
+     * {@link #enableReviewIndex()}.
+     *
+     * @param query the query
+     * @return the products
+     */
+    public List<Product> searchReviews(ReviewQuery query) {
+        if (!reviewIndexBuilt) {
+            enableReviewIndex();
+        }
+        int[][] matches = reviewIndex.search(query);
+        List<Product> found = new ArrayList<>(matches[0].length);
+        for (int id : matches[0]) {
+            found.add(products.get(id).getProduct());
+        }
+        return found;
+    }
+
+    /**
+     * Writes the products matching a query, one line per product.
+     *
+     * @param query the query
+     * @param out   the output
+     * @return the number of products written
+     * @throws IOException the io exception
+     */
+    public int writeProducts(ProductQuery query, Appendable out) throws IOException {
+        return writeProducts(query, this.formatter, out);
+    }
+
+    /**
+     * Writes the products matching a query in the given locale, one line per product.
+     *
+     * @param query   the query
+     * @param langTag the lang tag of the locale to render in, independent of {@link #changeLocal(String)}
+     * @param out     the output
+     * @return the number of products written
+     * @throws IOException the io exception
+     */
+    public int writeProducts(ProductQuery query, String langTag, Appendable out) throws IOException {
+        return writeProducts(query, formatterFor(langTag), out);
+    }
+
+    private int writeProducts(ProductQuery query, ResourceFormatter formatter, Appendable out) throws IOException {
+        long start = metrics.start();
+        try {
+            List<Product> page = index.query(query);
+            for (Product product : page) {
+                out.append(renderProduct(formatter, product)).append('\n');
+            }
+            return page.size();
+        } finally {
+            metrics.stop(Operation.REPORT, start);
+        }
+    }
+
+    /**
+     * Writes one page of the products that pass the filter, in sorter order, one line per product.
+     * Products the sorter considers equal are ordered by id, so that pages are stable. Only the requested
+     * page is rendered, and a page near the start costs O(n log(offset + limit)) rather than a full sort.
+     * The page is selected from one {@link #snapshot()}, so products re-rated meanwhile are seen either
+     * before or after, consistently with every other product.
+     *
+     * @param filter the filter
+     * @param sorter the sorter
+     * @param offset the number of matching products to skip
+     * @param limit  the maximum number of products to write
+     * @param out    the output
+     * @return the number of products written
+     * @throws IOException the io exception
+     */
+    public int writeProducts(Predicate<Product> filter, Comparator<Product> sorter, int offset, int limit, Appendable out) throws IOException {
+        return writeProducts(filter, sorter, this.formatter, offset, limit, out);
+    }
+
+    /**
+     * Writes one page of the products that pass the filter in the given locale, in sorter order.
+     *
+     * @param filter  the filter
+     * @param sorter  the sorter
+     * @param langTag the lang tag of the locale to render in, independent of {@link #changeLocal(String)}
+     * @param offset  the number of matching products to skip
+     * @param limit   the maximum number of products to write
+     * @param out     the output
+     * @return the number of products written
+     * @throws IOException the io exception
+     */
+    public int writeProducts(Predicate<Product> filter, Comparator<Product> sorter, String langTag, int offset, int limit, Appendable out) throws IOException {
+        return writeProducts(filter, sorter, formatterFor(langTag), offset, limit, out);
+    }
+
+    private int writeProducts(Predicate<Product> filter, Comparator<Product> sorter, ResourceFormatter formatter, int offset, int limit, Appendable out) throws IOException {
+        long start = metrics.start();
+        try {
+            List<Product> page = selectPage(filter, sorter.thenComparingInt(Product::getId), offset, limit);
+            for (Product product : page) {
+                out.append(renderProduct(formatter, product)).append('\n');
+            }
+            return page.size();
+        } finally {
+            metrics.stop(Operation.REPORT, start);
+        }
+    }
+
+    /**
+     * Writes one page of the products that pass the filter to a channel, through a bounded UTF-8 buffer.
+     *
+     * @param filter  the filter
+     * @param sorter  the sorter
+     * @param offset  the number of matching products to skip
+     * @param limit   the maximum number of products to write
+     * @param channel the channel, left open
+     * @return the number of products written
+     * @throws IOException the io exception
+     */
+    public int writeProducts(Predicate<Product> filter, Comparator<Product> sorter, int offset, int limit, WritableByteChannel channel) throws IOException {
+        Writer out = Channels.newWriter(channel, StandardCharsets.UTF_8.newEncoder(), REPORT_BUFFER_SIZE);
+        int written = writeProducts(filter, sorter, offset, limit, out);
+        out.flush();
+        return written;
+    }
+
+    /**
+     * Selects one page of the products that pass the filter, in sorter order.
+     *
+     * @param filter the filter
+     * @param sorter the sorter, a total order
+     * @param offset the number of matching products to skip
+     * @param limit  the maximum number of products
+     * @return the page
+     */
+    List<Product> selectPage(Predicate<Product> filter, Comparator<Product> sorter, int offset, int limit) {
+        return snapshot().select(filter, sorter, offset, limit);
     }
 
     /**
@@ -231,12 +1029,18 @@ public class ProductManager {
      * @param text the text
      */
     public void parseReview(String text) {
+        DataLineParser parser = new DataLineParser();
+        long start = metrics.start();
         try {
-            Object[] values = reviewFormat.parse(text);
-            reviewProduct(Integer.parseInt((String) values[0]), Rateable.convert(Integer.parseInt((String) values[1])), (String) values[2]);
-        } catch (ParseException | NumberFormatException e) {
+            parser.parseReview(text);
+        } catch (ParseException e) {
+            metrics.parseFailed(parser.getFailure());
             logger.log(Level.WARNING, "Error Parsing Review: " + text, e.getMessage());
+            return;
+        } finally {
+            metrics.stop(Operation.PARSE, start);
         }
+        reviewProduct(parser.getId(), parser.getRating(), parser.getComments());
     }
 
     /**
@@ -245,76 +1049,126 @@ public class ProductManager {
      * @param text the text
      */
     public void parseProduct(String text) {
+        DataLineParser parser = new DataLineParser();
+        long start = metrics.start();
         try {
-            Object[] values = productFormat.parse(text);
-            int id = Integer.parseInt((String) values[1]);
-            String name = (String) values[2];
-            BigDecimal price = BigDecimal.valueOf(Double.parseDouble((String) values[3]));
-            Rating rating = Rateable.convert(Integer.parseInt((String) values[4]));
-            switch ((String) values[0]) {
-                case "D":
-                    createProduct(id, name, price, rating);
-                    break;
-                case "F":
-                    LocalDate bestBefore = LocalDate.parse((String) values[5]);
-                    createProduct(id, name, price, rating, bestBefore);
-            }
-        } catch (ParseException | NumberFormatException | DateTimeParseException e) {
+            parser.parseProduct(text);
+        } catch (ParseException e) {
+            metrics.parseFailed(parser.getFailure());
             logger.log(Level.WARNING, "Error Parsing Product: " + text, e.getMessage());
+            return;
+        } finally {
+            metrics.stop(Operation.PARSE, start);
+        }
+        switch (parser.getType()) {
+            case DataLineParser.DRINK:
+                createProduct(parser.getId(), parser.getName(), parser.getPrice(), parser.getRating());
+                break;
+            case DataLineParser.FOOD:
+                createProduct(parser.getId(), parser.getName(), parser.getPrice(), parser.getRating(), parser.getBestBefore());
+                break;
+            default:
+                metrics.parseFailed("type");
         }
     }
 
     /**
-     * Gets discount.
+     * Gets the discount totals per rating, as of one reading of the clock. The totals are maintained as
+     * products are added and re-rated, so this does not visit the products.
      *
      * @return the discount
      */
     public Map<String, String> getDiscount() {
-        return products.keySet()
-                .stream()
-                .collect(
-                        Collectors.groupingBy(
-                                product -> product.getRating().getStars(),
-                                Collectors.collectingAndThen(
-                                        Collectors.summingDouble(
-                                                product -> product.getDiscount().doubleValue()
-                                        ),
-                                        discount -> formatter.moneyFormat.format(discount)
-                                )
-                        )
-                );
-    }
-
-
-    private static class ResourceFormatter {
-        private Locale locale;
-        private ResourceBundle resources;
-        private DateTimeFormatter dateFormat;
-        private NumberFormat moneyFormat;
-
-        private ResourceFormatter(Locale locale) {
-            this.locale = locale;
-            resources = ResourceBundle.getBundle("com.alok.data.resources", locale);
-            dateFormat = DateTimeFormatter.ofLocalizedDate(FormatStyle.SHORT).withLocale(locale);
-            moneyFormat = NumberFormat.getCurrencyInstance(locale);
-        }
-
-        private String formatProduct(Product product) {
-            return MessageFormat.format(resources.getString("product"),
-                    product.getName(),
-                    moneyFormat.format(product.getPrice()),
-                    product.getRating().getStars(),
-                    dateFormat.format(product.getBestBefore()));
-        }
-
-        private String formatReview(Review review) {
-            return MessageFormat.format(resources.getString("review"),
-                    review.getRating().getStars(),
-                    review.getComments());
-        }
-
-        private String getText(String key) {
-            return resources.getString(key);
+        return getDiscount(this.formatter);
+    }
+
+    /**
+     * Gets the discount totals per rating in the given locale.
+     *
+     * @param langTag the lang tag of the locale to format the totals in
+     * @return the discount
+     */
+    public Map<String, String> getDiscount(String langTag) {
+        return getDiscount(formatterFor(langTag));
+    }
+
+    private Map<String, String> getDiscount(ResourceFormatter formatter) {
+        long start = metrics.start();
+        try {
+            Map<String, String> result = new HashMap<>();
+            LocalDateTime now = LocalDateTime.now(clock);
+            discounts.prune(now.toLocalDate());
+            discounts.getTotals(now)
+                    .forEach((rating, total) -> result.put(rating.getStars(), formatter.formatMoney(total)));
+            return result;
+        } finally {
+            metrics.stop(Operation.DISCOUNT, start);
+        }
+    }
+
+    /**
+     * Gets the discount totals per rating at the given time, for every rating of at least one product. Food
+     * best before a day already over by the clock of the manager is no longer counted.
+     *
+     * @param now the time the discounts are evaluated at
+     * @return the totals, in cents
+     */
+    public Map<Rating, Money> getDiscountTotals(LocalDateTime now) {
+        long start = metrics.start();
+        try {
+            discounts.prune(LocalDate.now(clock));
+            return discounts.getTotals(now);
+        } finally {
+            metrics.stop(Operation.DISCOUNT, start);
+        }
+    }
+
+    /**
+     * Lists the food discounted today, its best before day, from the best before calendar.
+     *
+     * @return the products
+     */
+    public List<Product> findDiscountedFood() {
+        List<Product> food = new ArrayList<>();
+        LocalDate today = LocalDate.now(clock);
+        discounts.prune(today);
+        for (int id : discounts.getFood(today)) {
+            food.add(products.get(id).getProduct());
+        }
+        return food;
+    }
+
+
+    /**
+     * Action run by {@link #checkpoint(CheckpointAction)}.
+     */
+    @FunctionalInterface
+    interface CheckpointAction {
+        /**
+         * Run.
+         *
+         * @throws IOException the io exception
+         */
+        void run() throws IOException;
+    }
+
+    /**
+     * Writer onto {@code System.out}, which keeps the console encoding.
+     */
+    static class ConsoleWriter extends Writer {
+        @Override
+        public void write(char[] chars, int offset, int length) {
+            System.out.print(new String(chars, offset, length));
+        }
+
+        @Override
+        public void flush() {
+            System.out.flush();
+        }
+
+        @Override
+        public void close() {
+            flush();
         }
     }
 }
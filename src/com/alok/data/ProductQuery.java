@@ -0,0 +1,203 @@
+package com.alok.data;
+
+import java.math.BigDecimal;
+import java.util.Comparator;
+
+/**
+ * Listing query answered from the rating and price indexes of a {@link ProductManager}, for example
+ * <pre>
+ * ProductQuery.create().maxPrice(BigDecimal.valueOf(2)).sortByRating(true).sortByPrice(true).limit(10)
+ * </pre>
+ * Products are ordered by rating first when {@link #sortByRating(boolean)} is set, then by price, then by id.
+ */
+public class ProductQuery {
+    private BigDecimal minPrice;
+    private BigDecimal maxPrice;
+    private Rating minRating = Rating.NOT_RATED;
+    private Rating maxRating = Rating.FIVE_STAR;
+    private Boolean ratingDescending;
+    private boolean priceDescending;
+    private int limit = Integer.MAX_VALUE;
+
+    private ProductQuery() {
+    }
+
+    /**
+     * Creates a query matching every product, in ascending price order.
+     *
+     * @return the product query
+     */
+    public static ProductQuery create() {
+        return new ProductQuery();
+    }
+
+    /**
+     * Keeps products priced at least the given amount.
+     *
+     * @param price the inclusive lower bound
+     * @return the product query
+     */
+    public ProductQuery minPrice(BigDecimal price) {
+        this.minPrice = price;
+        return this;
+    }
+
+    /**
+     * Keeps products priced below the given amount.
+     *
+     * @param price the exclusive upper bound
+     * @return the product query
+     */
+    public ProductQuery maxPrice(BigDecimal price) {
+        this.maxPrice = price;
+        return this;
+    }
+
+    /**
+     * Keeps products rated at least the given rating.
+     *
+     * @param rating the inclusive lower bound
+     * @return the product query
+     */
+    public ProductQuery minRating(Rating rating) {
+        this.minRating = rating;
+        return this;
+    }
+
+    /**
+     * Keeps products rated at most the given rating.
+     *
+     * @param rating the inclusive upper bound
+     * @return the product query
+     */
+    public ProductQuery maxRating(Rating rating) {
+        this.maxRating = rating;
+        return this;
+    }
+
+    /**
+     * Orders products by rating before price.
+     *
+     * @param descending whether the best rated products come first
+     * @return the product query
+     */
+    public ProductQuery sortByRating(boolean descending) {
+        this.ratingDescending = descending;
+        return this;
+    }
+
+    /**
+     * Orders products by price.
+     *
+     * @param descending whether the most expensive products come first
+     * @return the product query
+     */
+    public ProductQuery sortByPrice(boolean descending) {
+        this.priceDescending = descending;
+        return this;
+    }
+
+    /**
+     * Returns at most the given number of products.
+     *
+     * @param limit the limit
+     * @return the product query
+     */
+    public ProductQuery limit(int limit) {
+        if (limit < 0) {
+            throw new IllegalArgumentException("Limit must not be negative");
+        }
+        this.limit = limit;
+        return this;
+    }
+
+    /**
+     * Gets min price.
+     *
+     * @return the inclusive lower price bound, or null
+     */
+    public BigDecimal getMinPrice() {
+        return minPrice;
+    }
+
+    /**
+     * Gets max price.
+     *
+     * @return the exclusive upper price bound, or null
+     */
+    public BigDecimal getMaxPrice() {
+        return maxPrice;
+    }
+
+    /**
+     * Gets min rating.
+     *
+     * @return the inclusive lower rating bound
+     */
+    public Rating getMinRating() {
+        return minRating;
+    }
+
+    /**
+     * Gets max rating.
+     *
+     * @return the inclusive upper rating bound
+     */
+    public Rating getMaxRating() {
+        return maxRating;
+    }
+
+    /**
+     * Is sorted by rating boolean.
+     *
+     * @return whether products are ordered by rating before price
+     */
+    public boolean isSortedByRating() {
+        return ratingDescending != null;
+    }
+
+    /**
+     * Is rating descending boolean.
+     *
+     * @return whether the best rated products come first
+     */
+    public boolean isRatingDescending() {
+        return ratingDescending != null && ratingDescending;
+    }
+
+    /**
+     * Is price descending boolean.
+     *
+     * @return whether the most expensive products come first
+     */
+    public boolean isPriceDescending() {
+        return priceDescending;
+    }
+
+    /**
+     * Gets limit.
+     *
+     * @return the maximum number of products
+     */
+    public int getLimit() {
+        return limit;
+    }
+
+    /**
+     * Gets the order of the query results: by rating when sorted by rating, then by price and id, ties of
+     * price ordered by id in the direction of the price.
+     *
+     * @return the comparator
+     */
+    Comparator<Product> getComparator() {
+        Comparator<Product> order = Comparator.comparing(Product::getPrice).thenComparingInt(Product::getId);
+        if (priceDescending) {
+            order = order.reversed();
+        }
+        if (isSortedByRating()) {
+            Comparator<Product> byRating = Comparator.comparing(Product::getRating);
+            order = (ratingDescending ? byRating.reversed() : byRating).thenComparing(order);
+        }
+        return order;
+    }
+}
@@ -0,0 +1,125 @@
+package com.alok.data;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Description of a product to create, for {@link ProductManager#createProducts(java.util.Collection)}, or of a
+ * product moving between catalogs, for {@link ShardTransport}.
+ */
+public final class ProductSpec {
+
+    private final int id;
+    private final String name;
+    private final BigDecimal price;
+    private final Rating rating;
+    private final LocalDate bestBefore;
+
+    private ProductSpec(int id, String name, BigDecimal price, Rating rating, LocalDate bestBefore) {
+        this.id = id;
+        this.name = name;
+        this.price = price;
+        this.rating = rating;
+        this.bestBefore = bestBefore;
+    }
+
+    /**
+     * Describes a drink.
+     *
+     * @param id     the id
+     * @param name   the name
+     * @param price  the price
+     * @param rating the rating
+     * @return the product spec
+     */
+    public static ProductSpec drink(int id, String name, BigDecimal price, Rating rating) {
+        return new ProductSpec(id, name, price, rating, null);
+    }
+
+    /**
+     * Describes a food.
+     *
+     * @param id         the id
+     * @param name       the name
+     * @param price      the price
+     * @param rating     the rating
+     * @param bestBefore the best before
+     * @return the product spec
+     */
+    public static ProductSpec food(int id, String name, BigDecimal price, Rating rating, LocalDate bestBefore) {
+        if (bestBefore == null) {
+            throw new IllegalArgumentException("Food needs a best before date");
+        }
+        return new ProductSpec(id, name, price, rating, bestBefore);
+    }
+
+    /**
+     * Describes an existing product, with its current rating.
+     *
+     * @param product the product
+     * @return the product spec
+     */
+    public static ProductSpec of(Product product) {
+        return product instanceof Food
+                ? food(product.getId(), product.getName(), product.getPrice(), product.getRating(), product.getBestBefore())
+                : drink(product.getId(), product.getName(), product.getPrice(), product.getRating());
+    }
+
+    /**
+     * Gets id.
+     *
+     * @return the id
+     */
+    public int getId() {
+        return id;
+    }
+
+    /**
+     * Gets name.
+     *
+     * @return the name
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Gets price.
+     *
+     * @return the price
+     */
+    public BigDecimal getPrice() {
+        return price;
+    }
+
+    /**
+     * Gets rating.
+     *
+     * @return the rating
+     */
+    public Rating getRating() {
+        return rating;
+    }
+
+    /**
+     * Gets best before.
+     *
+     * @return the best before date of a food, null for a drink
+     */
+    public LocalDate getBestBefore() {
+        return bestBefore;
+    }
+
+    /**
+     * Builds the product.
+     *
+     * @return the product
+     * @throws IllegalArgumentException when the name, price or rating is missing
+     */
+    Product toProduct() {
+        if (name == null || price == null || rating == null) {
+            throw new IllegalArgumentException("Product " + id + " needs a name, a price and a rating");
+        }
+        return bestBefore == null ? new Drink(id, name, price, rating) : new Food(id, name, price, rating, bestBefore);
+    }
+}
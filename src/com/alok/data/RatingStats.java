@@ -0,0 +1,119 @@
+package com.alok.data;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Running aggregate of the reviews of one product: review count, sum of rating ordinals
+ * and a per rating histogram. Adding a review is O(1), so the product rating never has to be
+ * derived from the review list again.
+ */
+public class RatingStats {
+
+    private static final Rating[] RATINGS = Rating.values();
+
+    private final long[] histogram = new long[RATINGS.length];
+    private long count;
+    private long sum;
+
+    /**
+     * Instantiates a new empty Rating stats.
+     */
+    RatingStats() {
+    }
+
+    private RatingStats(RatingStats other) {
+        System.arraycopy(other.histogram, 0, histogram, 0, histogram.length);
+        count = other.count;
+        sum = other.sum;
+    }
+
+    /**
+     * Records one review.
+     *
+     * @param rating the rating of the review
+     */
+    void add(Rating rating) {
+        histogram[rating.ordinal()]++;
+        count++;
+        sum += rating.ordinal();
+    }
+
+    /**
+     * Copy rating stats.
+     *
+     * @return an independent copy of this aggregate
+     */
+    RatingStats copy() {
+        return new RatingStats(this);
+    }
+
+    /**
+     * Gets the number of reviews.
+     *
+     * @return the count
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * Gets the number of reviews with the given rating.
+     *
+     * @param rating the rating
+     * @return the count
+     */
+    public long getCount(Rating rating) {
+        return histogram[rating.ordinal()];
+    }
+
+    /**
+     * Gets the sum of the rating ordinals of all reviews.
+     *
+     * @return the sum
+     */
+    public long getSum() {
+        return sum;
+    }
+
+    /**
+     * Gets the exact arithmetic mean of the rating ordinals.
+     *
+     * @return the mean, or 0 when there are no reviews
+     */
+    public double getMean() {
+        return count == 0 ? 0 : (double) sum / count;
+    }
+
+    /**
+     * Gets the rating a product with these reviews is given, which is the rounded mean.
+     *
+     * @return the rating
+     */
+    public Rating getRating() {
+        return Rateable.convert((int) Math.round(getMean()));
+    }
+
+    /**
+     * Gets the histogram of review counts per rating.
+     *
+     * @return the unmodifiable histogram, containing every rating
+     */
+    public Map<Rating, Long> getHistogram() {
+        Map<Rating, Long> result = new EnumMap<>(Rating.class);
+        for (Rating rating : RATINGS) {
+            result.put(rating, histogram[rating.ordinal()]);
+        }
+        return Collections.unmodifiableMap(result);
+    }
+
+    @Override
+    public String toString() {
+        return "RatingStats{" +
+                "count=" + count +
+                ", mean=" + getMean() +
+                ", histogram=" + getHistogram() +
+                '}';
+    }
+}
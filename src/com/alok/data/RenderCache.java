@@ -0,0 +1,118 @@
+package com.alok.data;
+
+import java.time.LocalDate;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Bounded cache of rendered product lines of one locale, keyed by product id.
+ * A line is reused only while the product still has the rating and best before date it was rendered
+ * with, so a stale line is never returned even if an invalidation was missed.
+ * <p>
+ * Lookups take no lock: lines live in a {@link ConcurrentHashMap} and a hit only sets the referenced flag of
+ * its line. Eviction approximates least recently used with a second chance sweep: once the cache outgrows its
+ * capacity, one inserting thread drops the lines not referenced since the previous sweep, clearing the flag of
+ * the others, until a tenth of the capacity is free. The cache may briefly hold more lines than its capacity
+ * while a sweep is running.
+ */
+final class RenderCache {
+
+    private final int capacity;
+    private final int sweepTarget;
+    private final ConcurrentHashMap<Integer, Line> lines;
+    private final AtomicBoolean sweeping = new AtomicBoolean();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * Instantiates a new Render cache.
+     *
+     * @param capacity the maximum number of cached lines
+     */
+    RenderCache(int capacity) {
+        this.capacity = capacity;
+        this.sweepTarget = capacity - Math.max(capacity / 10, 1);
+        this.lines = new ConcurrentHashMap<>(Math.min(capacity, 1 << 16));
+    }
+
+    /**
+     * Gets the rendered line of a product, rendering it on a miss.
+     *
+     * @param product  the product
+     * @param renderer the renderer
+     * @return the line
+     */
+    String get(Product product, Function<Product, String> renderer) {
+        LocalDate bestBefore = product.getBestBefore();
+        Line line = lines.get(product.getId());
+        if (line != null && line.rating == product.getRating() && line.bestBefore.equals(bestBefore)) {
+            if (!line.referenced) {
+                line.referenced = true;
+            }
+            hits.increment();
+            return line.text;
+        }
+        misses.increment();
+        String text = renderer.apply(product);
+        lines.put(product.getId(), new Line(product.getRating(), bestBefore, text));
+        if (lines.size() > capacity && sweeping.compareAndSet(false, true)) {
+            try {
+                sweep();
+            } finally {
+                sweeping.set(false);
+            }
+        }
+        return text;
+    }
+
+    /**
+     * Drops the line of a product.
+     *
+     * @param id the product id
+     */
+    void invalidate(int id) {
+        lines.remove(id);
+    }
+
+    /**
+     * Gets stats.
+     *
+     * @return the stats, each counter read separately while lookups go on
+     */
+    CacheStats getStats() {
+        return new CacheStats(hits.sum(), misses.sum(), evictions.sum(), lines.size(), capacity);
+    }
+
+    private void sweep() {
+        // the first pass only evicts unreferenced lines, the second one whatever it meets
+        for (int pass = 0; pass < 2 && lines.size() > sweepTarget; pass++) {
+            Iterator<Line> iterator = lines.values().iterator();
+            while (iterator.hasNext() && lines.size() > sweepTarget) {
+                Line line = iterator.next();
+                if (line.referenced && pass == 0) {
+                    line.referenced = false;
+                } else {
+                    iterator.remove();
+                    evictions.increment();
+                }
+            }
+        }
+    }
+
+    private static final class Line {
+        private final Rating rating;
+        private final LocalDate bestBefore;
+        private final String text;
+        private volatile boolean referenced;
+
+        private Line(Rating rating, LocalDate bestBefore, String text) {
+            this.rating = rating;
+            this.bestBefore = bestBefore;
+            this.text = text;
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package com.alok.data;
+
+import java.math.BigDecimal;
+import java.text.MessageFormat;
+import java.text.NumberFormat;
+import java.time.format.DateTimeFormatter;
+import java.time.format.FormatStyle;
+import java.util.Locale;
+import java.util.Map;
+import java.util.ResourceBundle;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Renders products, reviews and amounts in one locale. The patterns are parsed once; since
+ * {@link NumberFormat} and {@link MessageFormat} are not thread safe, every thread formats with its own
+ * copies of them, so any number of threads can render in any locales at once without locking.
+ * <p>
+ * Catalogs repeat the same prices and totals, so the currency text of each {@link Money} amount is cached,
+ * up to {@value #MONEY_CACHE_SIZE} amounts; the cache is dropped as a whole when it fills up.
+ */
+final class ResourceFormatter {
+
+    /**
+     * The base name of the resource bundles.
+     */
+    static final String BUNDLE = "com.alok.data.resources";
+
+    private static final int MONEY_CACHE_SIZE = 4096;
+
+    private final Locale locale;
+    private final ResourceBundle resources;
+    private final DateTimeFormatter dateFormat;
+    private final ThreadLocal<NumberFormat> moneyFormat;
+    private final ThreadLocal<MessageFormat> productFormat;
+    private final ThreadLocal<MessageFormat> reviewFormat;
+    private final Map<Money, String> moneyCache = new ConcurrentHashMap<>();
+
+    /**
+     * Loads the resources of a locale and compiles its formats.
+     *
+     * @param locale the locale
+     */
+    ResourceFormatter(Locale locale) {
+        this.locale = locale;
+        resources = ResourceBundle.getBundle(BUNDLE, locale);
+        dateFormat = DateTimeFormatter.ofLocalizedDate(FormatStyle.SHORT).withLocale(locale);
+        NumberFormat money = NumberFormat.getCurrencyInstance(locale);
+        MessageFormat product = new MessageFormat(resources.getString("product"), locale);
+        MessageFormat review = new MessageFormat(resources.getString("review"), locale);
+        moneyFormat = ThreadLocal.withInitial(() -> (NumberFormat) money.clone());
+        productFormat = ThreadLocal.withInitial(() -> (MessageFormat) product.clone());
+        reviewFormat = ThreadLocal.withInitial(() -> (MessageFormat) review.clone());
+    }
+
+    /**
+     * Gets locale.
+     *
+     * @return the locale
+     */
+    Locale getLocale() {
+        return locale;
+    }
+
+    /**
+     * Format product string.
+     *
+     * @param product the product
+     * @return the string
+     */
+    String formatProduct(Product product) {
+        return productFormat.get().format(new Object[]{
+                product.getName(),
+                product.getMoney() == null ? formatMoney(product.getPrice()) : formatMoney(product.getMoney()),
+                product.getRating().getStars(),
+                dateFormat.format(product.getBestBefore())});
+    }
+
+    /**
+     * Format review string.
+     *
+     * @param review the review
+     * @return the string
+     */
+    String formatReview(Review review) {
+        return reviewFormat.get().format(new Object[]{
+                review.getRating().getStars(),
+                review.getComments()});
+    }
+
+    /**
+     * Format money string.
+     *
+     * @param amount the amount
+     * @return the string
+     */
+    String formatMoney(BigDecimal amount) {
+        return moneyFormat.get().format(amount);
+    }
+
+    /**
+     * Format money string, from the cache when the amount was formatted before.
+     *
+     * @param amount the amount
+     * @return the string
+     */
+    String formatMoney(Money amount) {
+        String text = moneyCache.get(amount);
+        if (text == null) {
+            text = formatMoney(amount.toBigDecimal());
+            if (moneyCache.size() >= MONEY_CACHE_SIZE) {
+                moneyCache.clear();
+            }
+            moneyCache.put(amount, text);
+        }
+        return text;
+    }
+
+    /**
+     * Gets text.
+     *
+     * @param key the key
+     * @return the text
+     */
+    String getText(String key) {
+        return resources.getString(key);
+    }
+}
@@ -0,0 +1,225 @@
+package com.alok.data;
+
+import com.alok.utils.IntIntHashMap;
+
+import java.text.BreakIterator;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Inverted index of review comments: for every term and review rating, the number of reviews of each product
+ * containing the term. The postings of a term grow with the products it occurs in, not with the reviews.
+ * <p>
+ * Comments are split into words with the {@link BreakIterator} of the index locale and lower cased in that
+ * locale; query terms go through the same steps. Indexing is safe from many threads: the postings of a term
+ * are striped by product id, so reviews of different products seldom meet on the lock of a common word.
+ */
+final class ReviewIndex {
+
+    private static final Rating[] RATINGS = Rating.values();
+    private static final int STRIPES = 16;
+
+    private final Locale locale;
+    private final ThreadLocal<BreakIterator> words;
+    private final Map<String, Postings> terms = new ConcurrentHashMap<>();
+
+    /**
+     * Instantiates a new empty Review index.
+     *
+     * @param locale the locale comments are tokenized in
+     */
+    ReviewIndex(Locale locale) {
+        this.locale = locale;
+        BreakIterator prototype = BreakIterator.getWordInstance(locale);
+        this.words = ThreadLocal.withInitial(() -> (BreakIterator) prototype.clone());
+    }
+
+    /**
+     * Indexes the comments of a review.
+     *
+     * @param id     the product id
+     * @param review the review
+     */
+    void add(int id, Review review) {
+        if (review.getComments() == null) {
+            return;
+        }
+        for (String term : tokenize(review.getComments())) {
+            terms.computeIfAbsent(term, key -> new Postings()).add(review.getRating().ordinal(), id);
+        }
+    }
+
+    /**
+     * Runs a query.
+     *
+     * @param query the query
+     * @return the matching product ids and their hit counts, by decreasing hit count then increasing id
+     */
+    int[][] search(ReviewQuery query) {
+        Set<String> wanted = new LinkedHashSet<>();
+        for (String text : query.getTerms()) {
+            wanted.addAll(tokenize(text));
+        }
+        int[][] result = null;
+        for (String term : wanted) {
+            Postings postings = terms.get(term);
+            int[][] hits = postings == null ? new int[2][0] : postings.count(query.getRatings());
+            if (result == null) {
+                result = hits;
+            } else {
+                result = query.isAll() ? intersect(result, hits) : union(result, hits);
+            }
+            if (query.isAll() && result[0].length == 0) {
+                break;
+            }
+        }
+        if (result == null) {
+            return new int[2][0];
+        }
+        return rank(result, query.getLimit());
+    }
+
+    /**
+     * Gets term count.
+     *
+     * @return the number of distinct terms
+     */
+    int getTermCount() {
+        return terms.size();
+    }
+
+    private List<String> tokenize(String text) {
+        BreakIterator boundary = words.get();
+        boundary.setText(text);
+        Set<String> tokens = new LinkedHashSet<>();
+        for (int start = boundary.first(), end = boundary.next(); end != BreakIterator.DONE; start = end, end = boundary.next()) {
+            if (Character.isLetterOrDigit(text.codePointAt(start))) {
+                tokens.add(text.substring(start, end).toLowerCase(locale));
+            }
+        }
+        return new ArrayList<>(tokens);
+    }
+
+    private static int[][] intersect(int[][] a, int[][] b) {
+        int[] ids = new int[Math.min(a[0].length, b[0].length)];
+        int[] hits = new int[ids.length];
+        int n = 0;
+        for (int i = 0, j = 0; i < a[0].length && j < b[0].length; ) {
+            if (a[0][i] < b[0][j]) {
+                i++;
+            } else if (a[0][i] > b[0][j]) {
+                j++;
+            } else {
+                ids[n] = a[0][i];
+                hits[n++] = a[1][i++] + b[1][j++];
+            }
+        }
+        return new int[][]{Arrays.copyOf(ids, n), Arrays.copyOf(hits, n)};
+    }
+
+    private static int[][] union(int[][] a, int[][] b) {
+        int[] ids = new int[a[0].length + b[0].length];
+        int[] hits = new int[ids.length];
+        int n = 0;
+        int i = 0;
+        int j = 0;
+        while (i < a[0].length || j < b[0].length) {
+            if (j == b[0].length || i < a[0].length && a[0][i] < b[0][j]) {
+                ids[n] = a[0][i];
+                hits[n++] = a[1][i++];
+            } else if (i == a[0].length || b[0][j] < a[0][i]) {
+                ids[n] = b[0][j];
+                hits[n++] = b[1][j++];
+            } else {
+                ids[n] = a[0][i];
+                hits[n++] = a[1][i++] + b[1][j++];
+            }
+        }
+        return new int[][]{Arrays.copyOf(ids, n), Arrays.copyOf(hits, n)};
+    }
+
+    private static int[][] rank(int[][] matches, int limit) {
+        int n = matches[0].length;
+        // pack hits and id into one long, so that one primitive sort ranks them
+        long[] keys = new long[n];
+        for (int i = 0; i < n; i++) {
+            keys[i] = ((long) (Integer.MAX_VALUE - matches[1][i]) << 32) | (matches[0][i] - (long) Integer.MIN_VALUE);
+        }
+        Arrays.sort(keys);
+        int size = Math.min(n, limit);
+        int[][] ranked = new int[2][size];
+        for (int i = 0; i < size; i++) {
+            ranked[0][i] = (int) ((keys[i] & 0xFFFFFFFFL) + Integer.MIN_VALUE);
+            ranked[1][i] = Integer.MAX_VALUE - (int) (keys[i] >>> 32);
+        }
+        return ranked;
+    }
+
+    private static final class Postings {
+        private final AtomicReferenceArray<Stripe> stripes = new AtomicReferenceArray<>(STRIPES);
+
+        private void add(int rating, int id) {
+            int index = id & (STRIPES - 1);
+            Stripe stripe = stripes.get(index);
+            if (stripe == null) {
+                stripes.compareAndSet(index, null, new Stripe());
+                stripe = stripes.get(index);
+            }
+            stripe.add(rating, id);
+        }
+
+        /**
+         * Counts the postings of each product among the given ratings.
+         *
+         * @return the product ids in increasing order and their posting counts
+         */
+        private int[][] count(Set<Rating> ratings) {
+            IntIntHashMap totals = new IntIntHashMap();
+            for (int i = 0; i < STRIPES; i++) {
+                Stripe stripe = stripes.get(i);
+                if (stripe != null) {
+                    stripe.sum(ratings, totals);
+                }
+            }
+            // pack id and count into one long, so that one primitive sort orders them by id
+            long[] keys = new long[totals.size()];
+            int[] n = new int[1];
+            totals.forEach((id, count) -> keys[n[0]++] = ((id - (long) Integer.MIN_VALUE) << 32) | count);
+            Arrays.sort(keys);
+            int[][] result = new int[2][keys.length];
+            for (int i = 0; i < keys.length; i++) {
+                result[0][i] = (int) ((keys[i] >>> 32) + Integer.MIN_VALUE);
+                result[1][i] = (int) keys[i];
+            }
+            return result;
+        }
+    }
+
+    private static final class Stripe {
+        private final IntIntHashMap[] counts = new IntIntHashMap[RATINGS.length];
+
+        private synchronized void add(int rating, int id) {
+            IntIntHashMap products = counts[rating];
+            if (products == null) {
+                products = counts[rating] = new IntIntHashMap(4);
+            }
+            products.add(id, 1);
+        }
+
+        private synchronized void sum(Set<Rating> ratings, IntIntHashMap totals) {
+            for (Rating rating : ratings) {
+                IntIntHashMap products = counts[rating.ordinal()];
+                if (products != null) {
+                    products.forEach(totals::add);
+                }
+            }
+        }
+    }
+}
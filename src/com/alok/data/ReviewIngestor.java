@@ -0,0 +1,384 @@
+package com.alok.data;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Asynchronous review intake of a {@link ProductManager}.
+ * <p>
+ * The workers run from {@link #start()} on; reviews cannot be queued before. {@link #submit(int, Rating, String)} only queues a review and returns. A small pool of worker threads drains
+ * the queues in batches of up to {@code batchSize} reviews, waiting at most {@code linger} for a batch to fill,
+ * groups each batch by product and adds every group with a single re-rating of the product. Reviews are routed to
+ * a worker by product id, so the reviews of one product are applied in submission order. The queues are bounded:
+ * when a queue is full, {@code submit} blocks until the worker catches up.
+ * {@link #flush()} waits until everything submitted before it is applied and, when the manager is journaled by a
+ * {@link CatalogStore}, on disk. Reviews of products that are not in the catalog are dropped and counted by
+ * {@link #getNotFound()}, those that failed to apply by {@link #getFailed()}.
+ * A worker that is interrupted applies the reviews it holds and those queued, then stops; a later {@code flush}
+ * fails instead of waiting for the reviews the stopped worker will never apply.
+ * <p>
+ * The manager must be a concurrent one, since the workers change it while other threads use it.
+ */
+public class ReviewIngestor implements Closeable {
+
+    private static final Logger logger = Logger.getLogger(ReviewIngestor.class.getName());
+
+    private static final int DEFAULT_CAPACITY = 65_536;
+    private static final int DEFAULT_BATCH_SIZE = 1024;
+    private static final Duration DEFAULT_LINGER = Duration.ofMillis(5);
+    private static final Item STOP = new Item(0, null);
+
+    private final ProductManager manager;
+    private final int batchSize;
+    private final long lingerNanos;
+    private final Worker[] workers;
+    private final ReentrantReadWriteLock closeLock = new ReentrantReadWriteLock();
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder notFound = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private volatile boolean started;
+    private volatile boolean closed;
+    private volatile RuntimeException failure;
+
+    /**
+     * Instantiates a new Review ingestor with a queue of 65536 reviews, batches of 1024 reviews, a linger of 5 ms
+     * and one worker per processor, at most four.
+     *
+     * @param manager the manager
+     */
+    public ReviewIngestor(ProductManager manager) {
+        this(manager, DEFAULT_CAPACITY, DEFAULT_BATCH_SIZE, DEFAULT_LINGER,
+                Math.min(4, Runtime.getRuntime().availableProcessors()));
+    }
+
+    /**
+     * Instantiates a new Review ingestor.
+     *
+     * @param manager   the manager
+     * @param capacity  the number of reviews that can wait before {@code submit} blocks, shared by the workers
+     * @param batchSize the maximum number of reviews applied together
+     * @param linger    how long a worker waits for a batch to fill
+     * @param workers   the number of worker threads
+     * @throws IllegalArgumentException when the manager is not a concurrent one
+     */
+    public ReviewIngestor(ProductManager manager, int capacity, int batchSize, Duration linger, int workers) {
+        if (workers < 1 || batchSize < 1 || capacity < workers) {
+            throw new IllegalArgumentException("Invalid ingestor configuration");
+        }
+        if (!manager.isConcurrent()) {
+            throw new IllegalArgumentException("Review ingestor needs a concurrent product manager");
+        }
+        this.manager = manager;
+        this.batchSize = batchSize;
+        this.lingerNanos = linger.toNanos();
+        this.workers = new Worker[workers];
+        for (int i = 0; i < workers; i++) {
+            this.workers[i] = new Worker(capacity / workers, "review-ingestor-" + i);
+        }
+    }
+
+    /**
+     * Starts the workers.
+     *
+     * @return the review ingestor
+     */
+    public ReviewIngestor start() {
+        closeLock.writeLock().lock();
+        try {
+            if (!started && !closed) {
+                for (Worker worker : workers) {
+                    worker.thread.start();
+                }
+                started = true;
+            }
+            return this;
+        } finally {
+            closeLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Queues a review, waiting while the queue of its product is full.
+     *
+     * @param id       the product id
+     * @param rating   the rating
+     * @param comments the comments
+     * @throws InterruptedException when interrupted while waiting
+     */
+    public void submit(int id, Rating rating, String comments) throws InterruptedException {
+        Worker worker = worker(id);
+        closeLock.readLock().lock();
+        try {
+            checkOpen();
+            worker.queue.put(new Item(id, new Review(rating, comments)));
+            worker.submitted.incrementAndGet();
+        } finally {
+            closeLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Queues a review, waiting at most the given time while the queue of its product is full.
+     *
+     * @param id       the product id
+     * @param rating   the rating
+     * @param comments the comments
+     * @param timeout  the longest wait
+     * @return whether the review was queued
+     * @throws InterruptedException when interrupted while waiting
+     */
+    public boolean offer(int id, Rating rating, String comments, Duration timeout) throws InterruptedException {
+        Worker worker = worker(id);
+        closeLock.readLock().lock();
+        try {
+            checkOpen();
+            if (!worker.queue.offer(new Item(id, new Review(rating, comments)), timeout.toNanos(), TimeUnit.NANOSECONDS)) {
+                return false;
+            }
+            worker.submitted.incrementAndGet();
+            return true;
+        } finally {
+            closeLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Waits until every review submitted before the call is applied, and on disk when the manager is journaled.
+     *
+     * @throws IOException          when applying or journaling a review failed, or a worker stopped before
+     *                              applying the reviews
+     * @throws InterruptedException when interrupted while waiting
+     */
+    public void flush() throws IOException, InterruptedException {
+        long[] targets = new long[workers.length];
+        for (int i = 0; i < workers.length; i++) {
+            targets[i] = workers[i].submitted.get();
+        }
+        for (int i = 0; i < workers.length; i++) {
+            workers[i].awaitProcessed(targets[i]);
+        }
+        RuntimeException failure = this.failure;
+        if (failure != null) {
+            throw new IOException("Review ingestion failed", failure);
+        }
+        manager.syncJournal();
+    }
+
+    /**
+     * Gets applied.
+     *
+     * @return the number of reviews applied so far
+     */
+    public long getApplied() {
+        long processed = 0;
+        for (Worker worker : workers) {
+            processed += worker.getProcessed();
+        }
+        return processed - notFound.sum() - failed.sum();
+    }
+
+    /**
+     * Gets not found.
+     *
+     * @return the number of reviews dropped so far because their product was not in the catalog
+     */
+    public long getNotFound() {
+        return notFound.sum();
+    }
+
+    /**
+     * Gets failed.
+     *
+     * @return the number of reviews that failed to apply so far
+     */
+    public long getFailed() {
+        return failed.sum();
+    }
+
+    /**
+     * Gets batches.
+     *
+     * @return the number of batches applied so far
+     */
+    public long getBatches() {
+        return batches.sum();
+    }
+
+    /**
+     * Stops accepting reviews, applies the queued ones and stops the workers.
+     *
+     * @throws IOException when applying or journaling a review failed
+     */
+    @Override
+    public void close() throws IOException {
+        closeLock.writeLock().lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+        } finally {
+            closeLock.writeLock().unlock();
+        }
+        if (!started) {
+            return;
+        }
+        try {
+            for (Worker worker : workers) {
+                // a worker that stopped on its own no longer drains its queue
+                while (!worker.queue.offer(STOP, 10, TimeUnit.MILLISECONDS)) {
+                    if (!worker.thread.isAlive()) {
+                        break;
+                    }
+                }
+            }
+            for (Worker worker : workers) {
+                worker.thread.join();
+            }
+            flush();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while closing the ingestor", e);
+        }
+    }
+
+    private Worker worker(int id) {
+        return workers[Math.floorMod(id, workers.length)];
+    }
+
+    private void checkOpen() {
+        if (!started && !closed) {
+            throw new IllegalStateException("Review ingestor is not started");
+        }
+        if (closed) {
+            throw new IllegalStateException("Review ingestor is closed");
+        }
+    }
+
+    private void apply(List<Item> batch) {
+        Map<Integer, List<Review>> groups = new LinkedHashMap<>();
+        for (Item item : batch) {
+            groups.computeIfAbsent(item.id, id -> new ArrayList<>()).add(item.review);
+        }
+        for (Map.Entry<Integer, List<Review>> group : groups.entrySet()) {
+            ProductEntry entry = manager.getEntry(group.getKey());
+            if (entry == null) {
+                logger.log(Level.FINE, "Product with given id: " + group.getKey() + " not found.");
+                notFound.add(group.getValue().size());
+                continue;
+            }
+            try {
+                manager.addReviews(entry, group.getValue());
+            } catch (RuntimeException e) {
+                logger.log(Level.SEVERE, "Reviews of product " + group.getKey() + " were not applied", e);
+                failed.add(group.getValue().size());
+                if (failure == null) {
+                    failure = e;
+                }
+            }
+        }
+        batches.increment();
+    }
+
+    private static final class Item {
+        private final int id;
+        private final Review review;
+
+        private Item(int id, Review review) {
+            this.id = id;
+            this.review = review;
+        }
+    }
+
+    private final class Worker implements Runnable {
+        private final BlockingQueue<Item> queue;
+        private final AtomicLong submitted = new AtomicLong();
+        private final Thread thread;
+        private long processed;
+        private boolean stopped;
+
+        private Worker(int capacity, String name) {
+            this.queue = new ArrayBlockingQueue<>(capacity);
+            this.thread = new Thread(this, name);
+            thread.setDaemon(true);
+        }
+
+        @Override
+        public void run() {
+            try {
+                drain();
+            } finally {
+                synchronized (this) {
+                    stopped = true;
+                    notifyAll();
+                }
+            }
+        }
+
+        private void drain() {
+            List<Item> batch = new ArrayList<>(batchSize);
+            boolean stop = false;
+            while (!stop) {
+                try {
+                    batch.add(queue.take());
+                    long deadline = System.nanoTime() + lingerNanos;
+                    while (batch.size() < batchSize && batch.get(batch.size() - 1) != STOP) {
+                        if (queue.drainTo(batch, batchSize - batch.size()) > 0) {
+                            continue;
+                        }
+                        long remaining = deadline - System.nanoTime();
+                        Item next = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : null;
+                        if (next == null) {
+                            break;
+                        }
+                        batch.add(next);
+                    }
+                } catch (InterruptedException e) {
+                    // apply what was taken and what is queued, so that a flush of it can still return
+                    logger.log(Level.WARNING, thread.getName() + " interrupted, stopping");
+                    queue.drainTo(batch);
+                    stop = true;
+                }
+                if (batch.remove(STOP)) {
+                    stop = true;
+                }
+                int size = batch.size();
+                if (size > 0) {
+                    apply(batch);
+                }
+                batch.clear();
+                synchronized (this) {
+                    processed += size;
+                    notifyAll();
+                }
+            }
+        }
+
+        private synchronized long getProcessed() {
+            return processed;
+        }
+
+        private synchronized void awaitProcessed(long target) throws IOException, InterruptedException {
+            while (processed < target) {
+                if (stopped) {
+                    throw new IOException("Review ingestor worker " + thread.getName() + " stopped with "
+                            + (target - processed) + " reviews not applied");
+                }
+                wait();
+            }
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.alok.data;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Full text query over review comments, answered by the review index of a {@link ProductManager}, for example
+ * <pre>
+ * ReviewQuery.anyOf("milk", "lemon").ratings(Rating.ONE_STAR, Rating.TWO_STAR).limit(10)
+ * </pre>
+ * A product matches when its reviews contain all the terms ({@link #allOf(String...)}) or any of them
+ * ({@link #anyOf(String...)}); products are ranked by their number of hits, one hit per matching review and term.
+ */
+public class ReviewQuery {
+    private final List<String> terms;
+    private final boolean all;
+    private Set<Rating> ratings = EnumSet.allOf(Rating.class);
+    private int limit = Integer.MAX_VALUE;
+
+    private ReviewQuery(List<String> terms, boolean all) {
+        this.terms = terms;
+        this.all = all;
+    }
+
+    /**
+     * Matches products whose reviews contain every term.
+     *
+     * @param terms the terms
+     * @return the review query
+     */
+    public static ReviewQuery allOf(String... terms) {
+        return new ReviewQuery(Arrays.asList(terms), true);
+    }
+
+    /**
+     * Matches products whose reviews contain at least one of the terms.
+     *
+     * @param terms the terms
+     * @return the review query
+     */
+    public static ReviewQuery anyOf(String... terms) {
+        return new ReviewQuery(Arrays.asList(terms), false);
+    }
+
+    /**
+     * Only counts reviews with one of the given ratings.
+     *
+     * @param ratings the ratings
+     * @return the review query
+     */
+    public ReviewQuery ratings(Rating... ratings) {
+        this.ratings = ratings.length == 0 ? EnumSet.noneOf(Rating.class) : EnumSet.copyOf(Arrays.asList(ratings));
+        return this;
+    }
+
+    /**
+     * Returns at most the given number of products.
+     *
+     * @param limit the limit
+     * @return the review query
+     */
+    public ReviewQuery limit(int limit) {
+        if (limit < 0) {
+            throw new IllegalArgumentException("Limit must not be negative");
+        }
+        this.limit = limit;
+        return this;
+    }
+
+    List<String> getTerms() {
+        return Collections.unmodifiableList(terms);
+    }
+
+    boolean isAll() {
+        return all;
+    }
+
+    Set<Rating> getRatings() {
+        return ratings;
+    }
+
+    int getLimit() {
+        return limit;
+    }
+}
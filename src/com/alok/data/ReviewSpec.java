@@ -0,0 +1,51 @@
+package com.alok.data;
+
+/**
+ * Review of a product to submit, for {@link ProductManager#reviewProducts(java.util.Collection)}.
+ */
+public final class ReviewSpec {
+
+    private final int id;
+    private final Rating rating;
+    private final String comments;
+
+    /**
+     * Instantiates a new Review spec.
+     *
+     * @param id       the product id
+     * @param rating   the rating
+     * @param comments the comments
+     */
+    public ReviewSpec(int id, Rating rating, String comments) {
+        this.id = id;
+        this.rating = rating;
+        this.comments = comments;
+    }
+
+    /**
+     * Gets id.
+     *
+     * @return the product id
+     */
+    public int getId() {
+        return id;
+    }
+
+    /**
+     * Gets rating.
+     *
+     * @return the rating
+     */
+    public Rating getRating() {
+        return rating;
+    }
+
+    /**
+     * Gets comments.
+     *
+     * @return the comments
+     */
+    public String getComments() {
+        return comments;
+    }
+}
@@ -0,0 +1,105 @@
+package com.alok.data;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Scratch file the review blocks evicted from memory by a {@link ReviewStore} are appended to. Every writer
+ * reserves its own range of the file, so blocks of different products are spilled and read back concurrently
+ * with positional channel calls. The file only extends memory: it is truncated when opened and deleted when
+ * closed.
+ */
+final class ReviewSpill implements Closeable {
+
+    private final Path file;
+    private final FileChannel channel;
+    private final int retention;
+    private final AtomicLong end = new AtomicLong();
+
+    /**
+     * Opens a spill file.
+     *
+     * @param file      the file
+     * @param retention the number of most recent reviews per rating of a product kept in memory
+     * @throws IOException the io exception
+     */
+    ReviewSpill(Path file, int retention) throws IOException {
+        if (retention < 1) {
+            throw new IllegalArgumentException("Retention must be positive");
+        }
+        this.file = file;
+        this.retention = retention;
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+    }
+
+    /**
+     * Gets retention.
+     *
+     * @return the number of most recent reviews per rating of a product kept in memory
+     */
+    int getRetention() {
+        return retention;
+    }
+
+    /**
+     * Appends a block.
+     *
+     * @param block the block
+     * @return the position of the block
+     * @throws IOException the io exception
+     */
+    long write(ByteBuffer block) throws IOException {
+        long position = end.getAndAdd(block.remaining());
+        for (long at = position; block.hasRemaining(); ) {
+            at += channel.write(block, at);
+        }
+        return position;
+    }
+
+    /**
+     * Reads a block back.
+     *
+     * @param position the position of the block
+     * @param length   the length of the block
+     * @return the block
+     * @throws IOException the io exception
+     */
+    ByteBuffer read(long position, int length) throws IOException {
+        ByteBuffer block = ByteBuffer.allocate(length);
+        while (block.hasRemaining()) {
+            if (channel.read(block, position + block.position()) < 0) {
+                throw new EOFException("Review spill " + file + " ends before " + (position + length));
+            }
+        }
+        block.flip();
+        return block;
+    }
+
+    /**
+     * Gets size.
+     *
+     * @return the number of bytes spilled
+     */
+    long size() {
+        return end.get();
+    }
+
+    /**
+     * Closes and deletes the file.
+     *
+     * @throws IOException the io exception
+     */
+    @Override
+    public void close() throws IOException {
+        channel.close();
+        Files.deleteIfExists(file);
+    }
+}
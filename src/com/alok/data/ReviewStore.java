@@ -0,0 +1,327 @@
+package com.alok.data;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Reviews of one product, grouped by rating as they are added, so that reading them best rated first needs no
+ * sort. A group holds its reviews in blocks of 64: the rating is stored once for the group, the comments of a
+ * block are concatenated in one UTF-8 array with the end offset of each comment, and a bit mask marks missing
+ * comments. No object is kept per review; {@link Review}s are built when they are read.
+ * <p>
+ * With a {@link ReviewSpill}, a group keeps only its most recent reviews in memory, at least the retention of
+ * the spill and fewer than 64 more; older blocks are appended to the spill file and read back when a page
+ * reaches them. A block that cannot be spilled stays in memory.
+ * <p>
+ * The store is not thread safe, its {@link ProductEntry} serializes access.
+ */
+final class ReviewStore {
+
+    private static final Logger logger = Logger.getLogger(ReviewStore.class.getName());
+
+    private static final int BLOCK_SIZE = 64;
+    private static final byte[] NO_BYTES = new byte[0];
+    private static final Rating[] RATINGS = Rating.values();
+
+    private Group[] groups;
+    private int size;
+
+    /**
+     * Adds a review.
+     *
+     * @param review the review
+     * @param spill  the spill to evict old reviews to, or null to keep every review in memory
+     */
+    void add(Review review, ReviewSpill spill) {
+        if (groups == null) {
+            groups = new Group[RATINGS.length];
+        }
+        int rating = review.getRating().ordinal();
+        if (groups[rating] == null) {
+            groups[rating] = new Group();
+        }
+        groups[rating].add(review.getComments(), spill);
+        size++;
+    }
+
+    /**
+     * Size int.
+     *
+     * @return the number of reviews, spilled ones included
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Reads a page of the reviews, best rated first and in the order they were added within a rating.
+     * Blocks before the page are skipped without being read.
+     *
+     * @param offset the number of reviews to skip
+     * @param limit  the maximum number of reviews
+     * @param spill  the spill holding the evicted reviews
+     * @return the reviews
+     * @throws IOException when evicted reviews cannot be read
+     */
+    List<Review> getPage(int offset, int limit, ReviewSpill spill) throws IOException {
+        if (offset < 0 || limit < 0) {
+            throw new IllegalArgumentException("Offset and limit must not be negative");
+        }
+        List<Review> page = new ArrayList<>(Math.min(limit, Math.max(size - offset, 0)));
+        if (groups == null) {
+            return page;
+        }
+        long skip = offset;
+        for (int rating = RATINGS.length - 1; rating >= 0 && page.size() < limit; rating--) {
+            Group group = groups[rating];
+            if (group == null) {
+                continue;
+            }
+            if (skip >= group.size()) {
+                skip -= group.size();
+                continue;
+            }
+            read(rating, skip, limit, spill, page);
+            skip = 0;
+        }
+        return page;
+    }
+
+    /**
+     * Gets the number of reviews of every rating, to read the reviews as of now with
+     * {@link #getReviews(int[], ReviewSpill)} after more were added.
+     *
+     * @return the counts, by rating ordinal
+     */
+    int[] getCounts() {
+        int[] counts = new int[RATINGS.length];
+        if (groups != null) {
+            for (int rating = 0; rating < counts.length; rating++) {
+                counts[rating] = groups[rating] == null ? 0 : groups[rating].size();
+            }
+        }
+        return counts;
+    }
+
+    /**
+     * Reads the oldest reviews of every rating, best rated first. Reviews are only ever appended to their
+     * rating, so these are the reviews the store held when it had the given counts.
+     *
+     * @param counts the number of reviews to read per rating, from {@link #getCounts()}
+     * @param spill  the spill holding the evicted reviews
+     * @return the reviews
+     * @throws IOException when evicted reviews cannot be read
+     */
+    List<Review> getReviews(int[] counts, ReviewSpill spill) throws IOException {
+        List<Review> reviews = new ArrayList<>(Arrays.stream(counts).sum());
+        for (int rating = RATINGS.length - 1; rating >= 0; rating--) {
+            if (counts[rating] > 0) {
+                read(rating, 0, reviews.size() + counts[rating], spill, reviews);
+            }
+        }
+        return reviews;
+    }
+
+    private void read(int rating, long skip, int limit, ReviewSpill spill, List<Review> page) throws IOException {
+        Group group = groups[rating];
+        if (group.spilled != null) {
+            for (int i = 0; i < group.spilled.size() && page.size() < limit; i++) {
+                SpilledBlock spilled = group.spilled.get(i);
+                if (skip >= spilled.count) {
+                    skip -= spilled.count;
+                    continue;
+                }
+                Block.decode(spill.read(spilled.position, spilled.length), spilled.count)
+                        .read(RATINGS[rating], (int) skip, limit, page);
+                skip = 0;
+            }
+        }
+        if (group.full != null) {
+            for (Block block : group.full) {
+                if (page.size() >= limit) {
+                    break;
+                }
+                if (skip >= block.count) {
+                    skip -= block.count;
+                    continue;
+                }
+                block.read(RATINGS[rating], (int) skip, limit, page);
+                skip = 0;
+            }
+        }
+        if (page.size() < limit && skip < group.count) {
+            group.read(RATINGS[rating], (int) skip, limit, page);
+        }
+    }
+
+    /**
+     * Reviews of one rating: the group is itself the block being filled, and holds the full blocks before it,
+     * oldest first, and the blocks moved to the spill. The collections are only created once a block fills or
+     * spills.
+     */
+    private static final class Group extends Block {
+        private ArrayDeque<Block> full;
+        private List<SpilledBlock> spilled;
+
+        private int size() {
+            return memoryCount() + (spilled == null ? 0 : spilled.size() * BLOCK_SIZE);
+        }
+
+        private int memoryCount() {
+            // every block before the one being filled holds BLOCK_SIZE reviews
+            return (full == null ? 0 : full.size() * BLOCK_SIZE) + count;
+        }
+
+        private void add(String comments, ReviewSpill spill) {
+            if (count == BLOCK_SIZE) {
+                if (full == null) {
+                    full = new ArrayDeque<>(4);
+                }
+                full.addLast(detach());
+            }
+            append(comments);
+            if (spill != null && full != null) {
+                // the tail block is never evicted, so the newest reviews always stay in memory
+                while (!full.isEmpty() && memoryCount() - BLOCK_SIZE >= spill.getRetention()) {
+                    Block oldest = full.peekFirst();
+                    ByteBuffer encoded = oldest.encode();
+                    int length = encoded.remaining();
+                    try {
+                        if (spilled == null) {
+                            spilled = new ArrayList<>();
+                        }
+                        spilled.add(new SpilledBlock(spill.write(encoded), length, oldest.count));
+                    } catch (IOException e) {
+                        // keep the block in memory, the review itself is already stored
+                        logger.log(Level.WARNING, "Review spill failed", e);
+                        return;
+                    }
+                    full.pollFirst();
+                }
+            }
+        }
+    }
+
+    private static final class SpilledBlock {
+        private final long position;
+        private final int length;
+        private final int count;
+
+        private SpilledBlock(long position, int length, int count) {
+            this.position = position;
+            this.length = length;
+            this.count = count;
+        }
+    }
+
+    private static class Block {
+        byte[] bytes;
+        int[] ends;
+        int length;
+        int count;
+        long missing;
+
+        /**
+         * Instantiates a new empty Block. Its comment bytes start at the size of the first review and the end
+         * offsets are only kept from the second review on, both doubling as the block fills, so a group with a
+         * few reviews costs little more than their comments.
+         */
+        private Block() {
+            this(NO_BYTES, null);
+        }
+
+        private Block(byte[] bytes, int[] ends) {
+            this.bytes = bytes;
+            this.ends = ends;
+        }
+
+        void append(String comments) {
+            if (count == 1 && ends == null) {
+                ends = new int[]{length, 0};
+            } else if (count > 1 && count == ends.length) {
+                ends = Arrays.copyOf(ends, Math.min(count * 2, BLOCK_SIZE));
+            }
+            if (comments == null) {
+                missing |= 1L << count;
+            } else {
+                byte[] utf8 = comments.getBytes(StandardCharsets.UTF_8);
+                if (length + utf8.length > bytes.length) {
+                    bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, length + utf8.length));
+                }
+                System.arraycopy(utf8, 0, bytes, length, utf8.length);
+                length += utf8.length;
+            }
+            if (ends != null) {
+                ends[count] = length;
+            }
+            count++;
+        }
+
+        /**
+         * Moves the reviews into a new block trimmed to their size and empties this one.
+         */
+        Block detach() {
+            Block sealed = new Block(Arrays.copyOf(bytes, length), ends);
+            sealed.count = count;
+            sealed.length = length;
+            sealed.missing = missing;
+            bytes = NO_BYTES;
+            ends = null;
+            length = 0;
+            count = 0;
+            missing = 0;
+            return sealed;
+        }
+
+        void read(Rating rating, int from, int limit, List<Review> page) {
+            for (int i = from; i < count && page.size() < limit; i++) {
+                page.add(new Review(rating, get(i)));
+            }
+        }
+
+        String get(int index) {
+            if ((missing & 1L << index) != 0) {
+                return null;
+            }
+            int start = index == 0 ? 0 : ends[index - 1];
+            return new String(bytes, start, end(index) - start, StandardCharsets.UTF_8);
+        }
+
+        int end(int index) {
+            return ends == null ? length : ends[index];
+        }
+
+        ByteBuffer encode() {
+            ByteBuffer encoded = ByteBuffer.allocate(8 + 4 * count + length);
+            encoded.putLong(missing);
+            for (int i = 0; i < count; i++) {
+                encoded.putInt(end(i));
+            }
+            encoded.put(bytes, 0, length);
+            encoded.flip();
+            return encoded;
+        }
+
+        private static Block decode(ByteBuffer encoded, int count) {
+            long missing = encoded.getLong();
+            int[] ends = new int[count];
+            for (int i = 0; i < count; i++) {
+                ends[i] = encoded.getInt();
+            }
+            byte[] bytes = new byte[encoded.remaining()];
+            encoded.get(bytes);
+            Block block = new Block(bytes, ends);
+            block.count = count;
+            block.length = bytes.length;
+            block.missing = missing;
+            return block;
+        }
+    }
+}
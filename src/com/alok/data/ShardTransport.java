@@ -0,0 +1,122 @@
+package com.alok.data;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.function.Predicate;
+
+/**
+ * Connection of a {@link ShardedCatalog} to one of its shards, a catalog holding the products whose ids hash to
+ * it. {@link LocalShard} wraps a {@link ProductManager} of the same JVM. A transport to a shard in another JVM
+ * encodes the calls itself: products are read through their getters and rebuilt on the other side from a
+ * {@link ProductSpec} with {@link ProductManager#createProducts(java.util.Collection)} or
+ * {@link ProductManager#importProduct(ProductSpec, List)}, and queries through the getters of
+ * {@link ProductQuery}. Filters and sorters of {@link #selectProducts(Predicate, Comparator, int)} are code, so
+ * such a transport can only serve the ones it knows how to describe to the remote side.
+ * <p>
+ * Calls may come from several threads at once.
+ */
+public interface ShardTransport extends Closeable {
+
+    /**
+     * Adds a product unless a product with the same id is already in the shard.
+     *
+     * @param product the product
+     * @return the product
+     */
+    Product addProduct(Product product);
+
+    /**
+     * Find product product.
+     *
+     * @param id the id
+     * @return the product
+     * @throws ProductManagerException the product manager exception
+     */
+    Product findProduct(int id) throws ProductManagerException;
+
+    /**
+     * Review product product.
+     *
+     * @param id       the id
+     * @param rating   the rating
+     * @param comments the comments
+     * @return the re-rated product, or null when the product is not in the shard
+     */
+    Product reviewProduct(int id, Rating rating, String comments);
+
+    /**
+     * Writes the report of a product and a page of its reviews, best rated first.
+     *
+     * @param id      the id
+     * @param langTag the lang tag of the locale to render in
+     * @param offset  the number of reviews to skip
+     * @param limit   the maximum number of reviews to write
+     * @param out     the output
+     * @return the number of reviews written
+     * @throws ProductManagerException the product manager exception
+     * @throws IOException             the io exception
+     */
+    int writeProductReport(int id, String langTag, int offset, int limit, Appendable out) throws ProductManagerException, IOException;
+
+    /**
+     * Selects the first products that pass the filter, in sorter order.
+     *
+     * @param filter the filter
+     * @param sorter the sorter, a total order
+     * @param limit  the maximum number of products
+     * @return the products, sorted
+     */
+    List<Product> selectProducts(Predicate<Product> filter, Comparator<Product> sorter, int limit);
+
+    /**
+     * Lists the products matching a query.
+     *
+     * @param query the query
+     * @return the products, in query order
+     */
+    List<Product> findProducts(ProductQuery query);
+
+    /**
+     * Gets the discount totals of the shard per rating, for every rating of at least one product.
+     *
+     * @param now the time the discounts are evaluated at
+     * @return the totals
+     */
+    Map<Rating, Money> getDiscountTotals(LocalDateTime now);
+
+    /**
+     * Gets product count.
+     *
+     * @return the number of products in the shard
+     */
+    long getProductCount();
+
+    /**
+     * Passes every product of the shard with its reviews to an action, to move them to another shard.
+     *
+     * @param action the action
+     */
+    void exportProducts(BiConsumer<ProductSpec, List<Review>> action);
+
+    /**
+     * Adds a product with its reviews, as exported by another shard.
+     *
+     * @param product the product
+     * @param reviews the reviews
+     */
+    void importProduct(ProductSpec product, List<Review> reviews);
+
+    /**
+     * Releases the shard once it is no longer used. Does nothing by default.
+     *
+     * @throws IOException the io exception
+     */
+    @Override
+    default void close() throws IOException {
+    }
+}
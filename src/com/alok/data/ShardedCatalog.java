@@ -0,0 +1,491 @@
+package com.alok.data;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+import java.util.function.Predicate;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Product catalog partitioned by id hash across independent shards, each reached through a
+ * {@link ShardTransport}, so that the catalog is not bound to the locks and heap of one {@link ProductManager}.
+ * <p>
+ * Operations on one product go to the shard owning its id. Listings and discount totals are scattered to all
+ * shards in parallel: every shard returns its own first page in the caller's order and the pages are merged,
+ * so a page of {@code offset + limit} products costs at most that many products per shard. Totals are summed
+ * in cents.
+ * <p>
+ * {@link #rebalance(int)} moves the catalog onto a new number of shards while changes wait; reads go on against
+ * the old shards, which do not change during the move, and only wait for the new shards to be swapped in.
+ * Reads and changes otherwise run concurrently.
+ */
+public class ShardedCatalog implements Closeable {
+
+    private static final Logger logger = Logger.getLogger(ShardedCatalog.class.getName());
+
+    private final IntFunction<ShardTransport> shardFactory;
+    // changes hold the read lock of changeLock and reads the read lock of swapLock; rebalance holds the write
+    // lock of changeLock while it copies and the write lock of swapLock only to replace the shards
+    private final ReentrantReadWriteLock changeLock = new ReentrantReadWriteLock();
+    private final ReentrantReadWriteLock swapLock = new ReentrantReadWriteLock();
+    private final ExecutorService executor;
+    private final String langTag;
+    private volatile ShardTransport[] shards;
+    private volatile Clock clock = Clock.systemDefaultZone();
+
+    /**
+     * Instantiates a new Sharded catalog.
+     *
+     * @param langTag      the lang tag of the locale the print methods render in
+     * @param shardCount   the number of shards
+     * @param shardFactory creates the shard of an index, for the initial shards and on every rebalance
+     */
+    public ShardedCatalog(String langTag, int shardCount, IntFunction<ShardTransport> shardFactory) {
+        this.langTag = langTag;
+        this.shardFactory = shardFactory;
+        this.shards = createShards(shardCount);
+        AtomicInteger threads = new AtomicInteger();
+        this.executor = Executors.newCachedThreadPool(r -> {
+            Thread thread = new Thread(r, "catalog-shard-" + threads.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Creates a catalog of in-process shards, each a concurrent {@link ProductManager}.
+     *
+     * @param langTag    the lang tag
+     * @param shardCount the number of shards
+     * @return the catalog
+     */
+    public static ShardedCatalog local(String langTag, int shardCount) {
+        return new ShardedCatalog(langTag, shardCount, index -> new LocalShard(new ProductManager(langTag, true)));
+    }
+
+    /**
+     * Gets the shard owning a product id.
+     *
+     * @param id         the id
+     * @param shardCount the number of shards
+     * @return the shard index
+     */
+    static int shardOf(int id, int shardCount) {
+        int h = id * 0x9E3779B9;
+        return Math.floorMod(h ^ (h >>> 16), shardCount);
+    }
+
+    /**
+     * Sets the clock discounts are evaluated with.
+     *
+     * @param clock the clock
+     */
+    public void setClock(Clock clock) {
+        this.clock = clock;
+    }
+
+    /**
+     * Gets shard count.
+     *
+     * @return the number of shards
+     */
+    public int getShardCount() {
+        return shards.length;
+    }
+
+    /**
+     * Gets product count.
+     *
+     * @return the number of products in all shards
+     */
+    public long getProductCount() {
+        long count = 0;
+        for (long shardCount : scatter(ShardTransport::getProductCount)) {
+            count += shardCount;
+        }
+        return count;
+    }
+
+    /**
+     * Create product product.
+     *
+     * @param id         the id
+     * @param name       the name
+     * @param price      the price
+     * @param rating     the rating
+     * @param bestBefore the best before
+     * @return the product
+     */
+    public Product createProduct(int id, String name, BigDecimal price, Rating rating, LocalDate bestBefore) {
+        return route(id, shard -> shard.addProduct(new Food(id, name, price, rating, bestBefore)));
+    }
+
+    /**
+     * Create product product.
+     *
+     * @param id     the id
+     * @param name   the name
+     * @param price  the price
+     * @param rating the rating
+     * @return the product
+     */
+    public Product createProduct(int id, String name, BigDecimal price, Rating rating) {
+        return route(id, shard -> shard.addProduct(new Drink(id, name, price, rating)));
+    }
+
+    /**
+     * Find product product.
+     *
+     * @param id the id
+     * @return the product
+     * @throws ProductManagerException the product manager exception
+     */
+    public Product findProduct(int id) throws ProductManagerException {
+        swapLock.readLock().lock();
+        try {
+            return shardFor(id).findProduct(id);
+        } finally {
+            swapLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Review product product.
+     *
+     * @param id       the id
+     * @param rating   the rating
+     * @param comments the comments
+     * @return the re-rated product, or null when there is no product with the id
+     */
+    public Product reviewProduct(int id, Rating rating, String comments) {
+        return route(id, shard -> shard.reviewProduct(id, rating, comments));
+    }
+
+    /**
+     * Print product report.
+     *
+     * @param id the id
+     */
+    public void printProductReport(int id) {
+        Writer out = new BufferedWriter(new ProductManager.ConsoleWriter(), ProductManager.REPORT_BUFFER_SIZE);
+        try {
+            writeProductReport(id, langTag, 0, Integer.MAX_VALUE, out);
+            out.write('\n');
+            out.flush();
+        } catch (ProductManagerException e) {
+            logger.log(Level.INFO, e.getMessage());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Writes the report of a product and a page of its reviews in the given locale, best rated first.
+     *
+     * @param id      the id
+     * @param langTag the lang tag of the locale to render in
+     * @param offset  the number of reviews to skip
+     * @param limit   the maximum number of reviews to write
+     * @param out     the output
+     * @return the number of reviews written
+     * @throws ProductManagerException the product manager exception
+     * @throws IOException             the io exception
+     */
+    public int writeProductReport(int id, String langTag, int offset, int limit, Appendable out) throws ProductManagerException, IOException {
+        swapLock.readLock().lock();
+        try {
+            return shardFor(id).writeProductReport(id, langTag, offset, limit, out);
+        } finally {
+            swapLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Print products.
+     *
+     * @param filter the filter
+     * @param sorter the sorter
+     */
+    public void printProducts(Predicate<Product> filter, Comparator<Product> sorter) {
+        Writer out = new BufferedWriter(new ProductManager.ConsoleWriter(), ProductManager.REPORT_BUFFER_SIZE);
+        try {
+            writeProducts(filter, sorter, langTag, 0, Integer.MAX_VALUE, out);
+            out.write('\n');
+            out.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Print products matching a query.
+     *
+     * @param query the query
+     */
+    public void printProducts(ProductQuery query) {
+        Writer out = new BufferedWriter(new ProductManager.ConsoleWriter(), ProductManager.REPORT_BUFFER_SIZE);
+        try {
+            write(findProducts(query), ProductManager.formatterFor(langTag), out);
+            out.write('\n');
+            out.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Writes one page of the products of all shards that pass the filter in the given locale, in sorter order.
+     * Products the sorter considers equal are ordered by id, as {@link ProductManager} does.
+     *
+     * @param filter  the filter
+     * @param sorter  the sorter
+     * @param langTag the lang tag of the locale to render in
+     * @param offset  the number of matching products to skip
+     * @param limit   the maximum number of products to write
+     * @param out     the output
+     * @return the number of products written
+     * @throws IOException the io exception
+     */
+    public int writeProducts(Predicate<Product> filter, Comparator<Product> sorter, String langTag, int offset, int limit, Appendable out) throws IOException {
+        if (offset < 0 || limit < 0) {
+            throw new IllegalArgumentException("Offset and limit must not be negative");
+        }
+        Comparator<Product> order = sorter.thenComparingInt(Product::getId);
+        int wanted = (int) Math.min((long) offset + limit, Integer.MAX_VALUE);
+        List<Product> page = merge(scatter(shard -> shard.selectProducts(filter, order, wanted)), order, offset, limit);
+        return write(page, ProductManager.formatterFor(langTag), out);
+    }
+
+    /**
+     * Lists the products of all shards matching a query, in query order.
+     *
+     * @param query the query
+     * @return the products
+     */
+    public List<Product> findProducts(ProductQuery query) {
+        return merge(scatter(shard -> shard.findProducts(query)), query.getComparator(), 0, query.getLimit());
+    }
+
+    /**
+     * Gets the discount totals per rating of all shards, as of one reading of the clock.
+     *
+     * @return the discount
+     */
+    public Map<String, String> getDiscount() {
+        return getDiscount(langTag);
+    }
+
+    /**
+     * Gets the discount totals per rating of all shards in the given locale.
+     *
+     * @param langTag the lang tag of the locale to format the totals in
+     * @return the discount
+     */
+    public Map<String, String> getDiscount(String langTag) {
+        LocalDateTime now = LocalDateTime.now(clock);
+        Map<Rating, Long> cents = new HashMap<>();
+        for (Map<Rating, Money> totals : scatter(shard -> shard.getDiscountTotals(now))) {
+            totals.forEach((rating, total) -> cents.merge(rating, total.toMinor(2), Math::addExact));
+        }
+        ResourceFormatter formatter = ProductManager.formatterFor(langTag);
+        Map<String, String> result = new HashMap<>();
+        cents.forEach((rating, total) -> result.put(rating.getStars(), formatter.formatMoney(Money.ofMinor(total, 2))));
+        return result;
+    }
+
+    /**
+     * Moves the catalog onto a new number of shards created by the shard factory, then closes the old shards.
+     * Every shard exports its products with their reviews in parallel to the new shards owning them. Changes
+     * wait until the new shards are in place, reads are served by the old shards until then.
+     *
+     * @param shardCount the new number of shards
+     * @throws IOException when an old shard fails to close
+     */
+    public void rebalance(int shardCount) throws IOException {
+        changeLock.writeLock().lock();
+        try {
+            ShardTransport[] next = createShards(shardCount);
+            scatter(shard -> {
+                shard.exportProducts((product, reviews) -> next[shardOf(product.getId(), shardCount)].importProduct(product, reviews));
+                return null;
+            });
+            ShardTransport[] old;
+            swapLock.writeLock().lock();
+            try {
+                old = shards;
+                shards = next;
+            } finally {
+                swapLock.writeLock().unlock();
+            }
+            // no read can still be running on the old shards once the swap lock was taken
+            for (ShardTransport shard : old) {
+                shard.close();
+            }
+        } finally {
+            changeLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Closes the shards and stops the scatter threads.
+     *
+     * @throws IOException the io exception
+     */
+    @Override
+    public void close() throws IOException {
+        changeLock.writeLock().lock();
+        swapLock.writeLock().lock();
+        try {
+            executor.shutdown();
+            for (ShardTransport shard : shards) {
+                shard.close();
+            }
+        } finally {
+            swapLock.writeLock().unlock();
+            changeLock.writeLock().unlock();
+        }
+    }
+
+    private ShardTransport[] createShards(int shardCount) {
+        if (shardCount < 1) {
+            throw new IllegalArgumentException("Shard count must be positive");
+        }
+        ShardTransport[] created = new ShardTransport[shardCount];
+        for (int i = 0; i < shardCount; i++) {
+            created[i] = shardFactory.apply(i);
+        }
+        return created;
+    }
+
+    private ShardTransport shardFor(int id) {
+        ShardTransport[] current = shards;
+        return current[shardOf(id, current.length)];
+    }
+
+    private <T> T route(int id, Function<ShardTransport, T> call) {
+        changeLock.readLock().lock();
+        try {
+            return call.apply(shardFor(id));
+        } finally {
+            changeLock.readLock().unlock();
+        }
+    }
+
+    // runs the call on every shard in parallel, the last one on the calling thread; also used by rebalance
+    // to export the old shards, while it holds the change lock
+    private <T> List<T> scatter(Function<ShardTransport, T> call) {
+        swapLock.readLock().lock();
+        try {
+            ShardTransport[] current = shards;
+            List<Future<T>> futures = new ArrayList<>(current.length - 1);
+            for (int i = 0; i < current.length - 1; i++) {
+                ShardTransport shard = current[i];
+                futures.add(executor.submit(() -> call.apply(shard)));
+            }
+            T last = call.apply(current[current.length - 1]);
+            List<T> results = new ArrayList<>(current.length);
+            for (Future<T> future : futures) {
+                results.add(await(future));
+            }
+            results.add(last);
+            return results;
+        } finally {
+            swapLock.readLock().unlock();
+        }
+    }
+
+    private static <T> T await(Future<T> future) {
+        boolean interrupted = false;
+        try {
+            while (true) {
+                try {
+                    return future.get();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                } catch (ExecutionException e) {
+                    Throwable cause = e.getCause();
+                    if (cause instanceof RuntimeException) {
+                        throw (RuntimeException) cause;
+                    }
+                    if (cause instanceof Error) {
+                        throw (Error) cause;
+                    }
+                    throw new IllegalStateException("Shard call failed", cause);
+                }
+            }
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private static List<Product> merge(List<List<Product>> pages, Comparator<Product> order, int offset, int limit) {
+        PriorityQueue<Cursor> cursors = new PriorityQueue<>((a, b) -> order.compare(a.product, b.product));
+        for (List<Product> page : pages) {
+            Cursor cursor = new Cursor(page);
+            if (cursor.advance()) {
+                cursors.add(cursor);
+            }
+        }
+        List<Product> merged = new ArrayList<>();
+        for (int skipped = 0; !cursors.isEmpty() && merged.size() < limit; ) {
+            Cursor cursor = cursors.poll();
+            if (skipped < offset) {
+                skipped++;
+            } else {
+                merged.add(cursor.product);
+            }
+            if (cursor.advance()) {
+                cursors.add(cursor);
+            }
+        }
+        return merged;
+    }
+
+    private static int write(List<Product> page, ResourceFormatter formatter, Appendable out) throws IOException {
+        for (Product product : page) {
+            out.append(formatter.formatProduct(product)).append('\n');
+        }
+        return page.size();
+    }
+
+    private static final class Cursor {
+        private final List<Product> page;
+        private int next;
+        private Product product;
+
+        private Cursor(List<Product> page) {
+            this.page = page;
+        }
+
+        private boolean advance() {
+            if (next < page.size()) {
+                product = page.get(next++);
+                return true;
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package com.alok.data;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * Flight recorder event of a catalog operation that took longer than the slow threshold of {@link CatalogMetrics}.
+ */
+@Name("com.alok.data.SlowOperation")
+@Label("Slow Catalog Operation")
+@Category("Product Management")
+@Description("A product manager operation slower than the configured threshold")
+@StackTrace(false)
+final class SlowOperationEvent extends Event {
+
+    @Label("Operation")
+    String operation;
+
+    @Label("Elapsed")
+    @Timespan(Timespan.NANOSECONDS)
+    long elapsed;
+}
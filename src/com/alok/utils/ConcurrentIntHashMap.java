@@ -0,0 +1,147 @@
+package com.alok.utils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Thread safe {@link IntMap} built from lock striping: keys are spread over a fixed number of
+ * {@link IntHashMap} segments, each guarded by its own read/write lock. Threads working on keys in
+ * different segments never contend, and readers of the same segment proceed in parallel.
+ * Iteration is weakly consistent, every segment is copied under its read lock in turn.
+ *
+ * @param <V> the value type
+ */
+public class ConcurrentIntHashMap<V> implements IntMap<V> {
+
+    private final Segment<V>[] segments;
+    private final int shift;
+
+    /**
+     * Instantiates a new Concurrent int hash map with one segment per available processor,
+     * rounded up to a power of two and never less than 16.
+     */
+    public ConcurrentIntHashMap() {
+        this(Math.max(16, Runtime.getRuntime().availableProcessors() * 4));
+    }
+
+    /**
+     * Instantiates a new Concurrent int hash map.
+     *
+     * @param concurrencyLevel the expected number of concurrently updating threads
+     */
+    @SuppressWarnings("unchecked")
+    public ConcurrentIntHashMap(int concurrencyLevel) {
+        int count = Integer.highestOneBit(Math.max(concurrencyLevel, 2) - 1) << 1;
+        segments = (Segment<V>[]) new Segment<?>[count];
+        for (int i = 0; i < count; i++) {
+            segments[i] = new Segment<>();
+        }
+        shift = 32 - Integer.numberOfTrailingZeros(count);
+    }
+
+    @Override
+    public V get(int key) {
+        Segment<V> segment = segmentFor(key);
+        segment.lock.readLock().lock();
+        try {
+            return segment.map.get(key);
+        } finally {
+            segment.lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public V put(int key, V value) {
+        Segment<V> segment = segmentFor(key);
+        segment.lock.writeLock().lock();
+        try {
+            return segment.map.put(key, value);
+        } finally {
+            segment.lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public V putIfAbsent(int key, V value) {
+        Segment<V> segment = segmentFor(key);
+        segment.lock.writeLock().lock();
+        try {
+            return segment.map.putIfAbsent(key, value);
+        } finally {
+            segment.lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public V remove(int key) {
+        Segment<V> segment = segmentFor(key);
+        segment.lock.writeLock().lock();
+        try {
+            return segment.map.remove(key);
+        } finally {
+            segment.lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public int size() {
+        int size = 0;
+        for (Segment<V> segment : segments) {
+            segment.lock.readLock().lock();
+            try {
+                size += segment.map.size();
+            } finally {
+                segment.lock.readLock().unlock();
+            }
+        }
+        return size;
+    }
+
+    @Override
+    public void clear() {
+        for (Segment<V> segment : segments) {
+            segment.lock.writeLock().lock();
+            try {
+                segment.map.clear();
+            } finally {
+                segment.lock.writeLock().unlock();
+            }
+        }
+    }
+
+    @Override
+    public void forEachValue(Consumer<? super V> action) {
+        for (Segment<V> segment : segments) {
+            segment.copyValues().forEach(action);
+        }
+    }
+
+    @Override
+    public Stream<V> values() {
+        return Stream.of(segments).flatMap(segment -> segment.copyValues().stream());
+    }
+
+    private Segment<V> segmentFor(int key) {
+        // the segment is picked from the high bits, IntHashMap probes with the low bits
+        return segments[IntHashing.spread(key) >>> shift];
+    }
+
+    private static final class Segment<V> {
+        private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+        private final IntHashMap<V> map = new IntHashMap<>();
+
+        private List<V> copyValues() {
+            lock.readLock().lock();
+            try {
+                List<V> copy = new ArrayList<>(map.size());
+                map.forEachValue(copy::add);
+                return copy;
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+    }
+}
@@ -0,0 +1,216 @@
+package com.alok.utils;
+
+import java.util.Arrays;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Open addressing hash map keyed by primitive {@code int}, so lookups never box the key.
+ * Collisions are resolved by linear probing and removals use backward shift deletion,
+ * which keeps probe sequences short without tombstones. The map is not thread safe.
+ *
+ * @param <V> the value type
+ */
+public class IntHashMap<V> implements IntMap<V> {
+
+    private static final int DEFAULT_CAPACITY = 16;
+    private static final float LOAD_FACTOR = 0.6f;
+
+    private int[] keys;
+    private Object[] values;
+    private int size;
+    private int mask;
+    private int threshold;
+
+    /**
+     * Instantiates a new Int hash map.
+     */
+    public IntHashMap() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Instantiates a new Int hash map.
+     *
+     * @param expectedSize the expected number of entries
+     */
+    public IntHashMap(int expectedSize) {
+        allocate(IntHashing.tableSizeFor((int) Math.ceil(Math.max(expectedSize, 1) / LOAD_FACTOR)));
+    }
+
+    /**
+     * Gets the value mapped to the key.
+     *
+     * @param key the key
+     * @return the value, or null when absent
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public V get(int key) {
+        int slot = IntHashing.mix(key) & mask;
+        Object value;
+        while ((value = values[slot]) != null) {
+            if (keys[slot] == key) {
+                return (V) value;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return null;
+    }
+
+    /**
+     * Maps the key to the value, replacing any previous mapping.
+     *
+     * @param key   the key
+     * @param value the value, must not be null
+     * @return the previous value, or null
+     */
+    @Override
+    public V put(int key, V value) {
+        return put(key, value, false);
+    }
+
+    /**
+     * Maps the key to the value only when the key is not mapped yet.
+     *
+     * @param key   the key
+     * @param value the value, must not be null
+     * @return the existing value, or null when the value was inserted
+     */
+    @Override
+    public V putIfAbsent(int key, V value) {
+        return put(key, value, true);
+    }
+
+    /**
+     * Removes the mapping for the key.
+     *
+     * @param key the key
+     * @return the removed value, or null
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public V remove(int key) {
+        int slot = IntHashing.mix(key) & mask;
+        Object value;
+        while ((value = values[slot]) != null) {
+            if (keys[slot] == key) {
+                shiftBack(slot);
+                size--;
+                return (V) value;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return null;
+    }
+
+    /**
+     * Size int.
+     *
+     * @return the int
+     */
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Removes all mappings.
+     */
+    @Override
+    public void clear() {
+        Arrays.fill(values, null);
+        size = 0;
+    }
+
+    /**
+     * Performs the action for every value, in table order.
+     *
+     * @param action the action
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public void forEachValue(Consumer<? super V> action) {
+        for (Object value : values) {
+            if (value != null) {
+                action.accept((V) value);
+            }
+        }
+    }
+
+    /**
+     * Streams the values, in table order.
+     *
+     * @return the stream
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public Stream<V> values() {
+        return Arrays.stream(values)
+                .filter(v -> v != null)
+                .map(v -> (V) v);
+    }
+
+    @SuppressWarnings("unchecked")
+    private V put(int key, V value, boolean onlyIfAbsent) {
+        if (value == null) {
+            throw new NullPointerException("IntHashMap does not accept null values");
+        }
+        int slot = IntHashing.mix(key) & mask;
+        Object existing;
+        while ((existing = values[slot]) != null) {
+            if (keys[slot] == key) {
+                if (!onlyIfAbsent) {
+                    values[slot] = value;
+                }
+                return (V) existing;
+            }
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = key;
+        values[slot] = value;
+        if (++size > threshold) {
+            resize();
+        }
+        return null;
+    }
+
+    private void shiftBack(int slot) {
+        int gap = slot;
+        int next = (gap + 1) & mask;
+        while (values[next] != null) {
+            int home = IntHashing.mix(keys[next]) & mask;
+            // move the entry into the gap unless its home slot lies cyclically in (gap, next]
+            if (((next - home) & mask) >= ((next - gap) & mask)) {
+                keys[gap] = keys[next];
+                values[gap] = values[next];
+                gap = next;
+            }
+            next = (next + 1) & mask;
+        }
+        values[gap] = null;
+    }
+
+    private void resize() {
+        int[] oldKeys = keys;
+        Object[] oldValues = values;
+        allocate(values.length << 1);
+        for (int i = 0; i < oldValues.length; i++) {
+            if (oldValues[i] != null) {
+                int slot = IntHashing.mix(oldKeys[i]) & mask;
+                while (values[slot] != null) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new int[capacity];
+        values = new Object[capacity];
+        mask = capacity - 1;
+        threshold = (int) (capacity * LOAD_FACTOR);
+    }
+}
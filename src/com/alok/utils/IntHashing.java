@@ -0,0 +1,45 @@
+package com.alok.utils;
+
+/**
+ * Hashing shared by the primitive int keyed maps: the Fibonacci multiplier spreads consecutive ids over the
+ * whole int range, and folding the high half into the low half lets tables probe with the low bits.
+ */
+final class IntHashing {
+
+    private static final int GOLDEN = 0x9E3779B9;
+
+    private IntHashing() {
+    }
+
+    /**
+     * Spreads a key over the whole int range; the high bits are the best distributed ones.
+     *
+     * @param key the key
+     * @return the spread key
+     */
+    static int spread(int key) {
+        return key * GOLDEN;
+    }
+
+    /**
+     * Mixes a key for a table indexed by its low bits.
+     *
+     * @param key the key
+     * @return the hash
+     */
+    static int mix(int key) {
+        int h = spread(key);
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * Gets the power of two table size holding at least the given number of slots.
+     *
+     * @param n the number of slots
+     * @return the table size, at least 2
+     */
+    static int tableSizeFor(int n) {
+        int capacity = Integer.highestOneBit(Math.max(n, 2) - 1) << 1;
+        return Math.max(capacity, 2);
+    }
+}
@@ -0,0 +1,161 @@
+package com.alok.utils;
+
+/**
+ * Open addressing hash map from primitive {@code int} keys to primitive {@code int} values, for indexes and
+ * counters that must not box either side. Collisions are resolved by linear probing with the hashing of
+ * {@link IntHashMap}. Mappings can be added and changed but not removed. The map is not thread safe.
+ */
+public class IntIntHashMap {
+
+    private static final int DEFAULT_CAPACITY = 16;
+    private static final float LOAD_FACTOR = 0.6f;
+
+    private int[] keys;
+    private int[] values;
+    private boolean[] used;
+    private int size;
+    private int mask;
+    private int threshold;
+
+    /**
+     * Receives the mappings of an {@link IntIntHashMap}.
+     */
+    @FunctionalInterface
+    public interface EntryConsumer {
+
+        /**
+         * Accepts a mapping.
+         *
+         * @param key   the key
+         * @param value the value
+         */
+        void accept(int key, int value);
+    }
+
+    /**
+     * Instantiates a new Int int hash map.
+     */
+    public IntIntHashMap() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Instantiates a new Int int hash map.
+     *
+     * @param expectedSize the expected number of entries
+     */
+    public IntIntHashMap(int expectedSize) {
+        allocate(IntHashing.tableSizeFor((int) Math.ceil(Math.max(expectedSize, 1) / LOAD_FACTOR)));
+    }
+
+    /**
+     * Gets the value mapped to the key.
+     *
+     * @param key     the key
+     * @param missing the value returned when the key is not mapped
+     * @return the value, or {@code missing}
+     */
+    public int get(int key, int missing) {
+        int slot = IntHashing.mix(key) & mask;
+        while (used[slot]) {
+            if (keys[slot] == key) {
+                return values[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+        return missing;
+    }
+
+    /**
+     * Maps the key to the value, replacing any previous mapping.
+     *
+     * @param key   the key
+     * @param value the value
+     */
+    public void put(int key, int value) {
+        int slot = slotFor(key);
+        values[slot] = value;
+    }
+
+    /**
+     * Adds to the value mapped to the key, an unmapped key counting as zero.
+     *
+     * @param key   the key
+     * @param delta the amount to add
+     * @return the new value
+     */
+    public int add(int key, int delta) {
+        int slot = slotFor(key);
+        return values[slot] += delta;
+    }
+
+    /**
+     * Size int.
+     *
+     * @return the number of mappings
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Performs the action for every mapping, in table order.
+     *
+     * @param action the action
+     */
+    public void forEach(EntryConsumer action) {
+        for (int slot = 0; slot < used.length; slot++) {
+            if (used[slot]) {
+                action.accept(keys[slot], values[slot]);
+            }
+        }
+    }
+
+    /**
+     * Finds the slot of a key, mapping it to zero when absent.
+     */
+    private int slotFor(int key) {
+        int slot = IntHashing.mix(key) & mask;
+        while (used[slot]) {
+            if (keys[slot] == key) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        if (size + 1 > threshold) {
+            resize();
+            return slotFor(key);
+        }
+        used[slot] = true;
+        keys[slot] = key;
+        values[slot] = 0;
+        size++;
+        return slot;
+    }
+
+    private void resize() {
+        int[] oldKeys = keys;
+        int[] oldValues = values;
+        boolean[] oldUsed = used;
+        allocate(used.length << 1);
+        for (int i = 0; i < oldUsed.length; i++) {
+            if (oldUsed[i]) {
+                int slot = IntHashing.mix(oldKeys[i]) & mask;
+                while (used[slot]) {
+                    slot = (slot + 1) & mask;
+                }
+                used[slot] = true;
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new int[capacity];
+        values = new int[capacity];
+        used = new boolean[capacity];
+        mask = capacity - 1;
+        threshold = (int) (capacity * LOAD_FACTOR);
+    }
+}
@@ -0,0 +1,92 @@
+package com.alok.utils;
+
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Map keyed by primitive {@code int} that never boxes its keys. Null values are not supported,
+ * a null result always means the key is not mapped.
+ *
+ * @param <V> the value type
+ */
+public interface IntMap<V> {
+
+    /**
+     * Gets the value mapped to the key.
+     *
+     * @param key the key
+     * @return the value, or null when absent
+     */
+    V get(int key);
+
+    /**
+     * Contains key boolean.
+     *
+     * @param key the key
+     * @return the boolean
+     */
+    default boolean containsKey(int key) {
+        return get(key) != null;
+    }
+
+    /**
+     * Maps the key to the value, replacing any previous mapping.
+     *
+     * @param key   the key
+     * @param value the value, must not be null
+     * @return the previous value, or null
+     */
+    V put(int key, V value);
+
+    /**
+     * Maps the key to the value only when the key is not mapped yet.
+     *
+     * @param key   the key
+     * @param value the value, must not be null
+     * @return the existing value, or null when the value was inserted
+     */
+    V putIfAbsent(int key, V value);
+
+    /**
+     * Removes the mapping for the key.
+     *
+     * @param key the key
+     * @return the removed value, or null
+     */
+    V remove(int key);
+
+    /**
+     * Size int.
+     *
+     * @return the int
+     */
+    int size();
+
+    /**
+     * Is empty boolean.
+     *
+     * @return the boolean
+     */
+    default boolean isEmpty() {
+        return size() == 0;
+    }
+
+    /**
+     * Removes all mappings.
+     */
+    void clear();
+
+    /**
+     * Performs the action for every value.
+     *
+     * @param action the action
+     */
+    void forEachValue(Consumer<? super V> action);
+
+    /**
+     * Streams the values.
+     *
+     * @return the stream
+     */
+    Stream<V> values();
+}